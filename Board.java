@@ -3,27 +3,39 @@ import java.awt.event.*;
 import javax.swing.*;
 
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.concurrent.ExecutionException;
 /**
  * The Board class is really the main class in the game - it's where all the fun stuff happens. A board 
  * is created for the purposes of the GUI and added to the frame created in the Game class; user moves are
- * processed and accepted or rejected; the computer's moves are decided upon; and so on.
+ * processed and accepted or rejected; the computer's moves are asked for (from the Engine class, which does
+ * the thinking without any of the GUI); and so on.
+ * 
+ * The game is driven by the user's clicks. Once the user has made a move, the computer starts thinking about
+ * its reply straight away, on a background thread so that the window stays responsive however long that takes,
+ * and its move is then shown on the Swing event thread, where everything else here runs.
  * 
  * @author Lewis Lloyd
  * @version 1
  */
 public class Board
 {
-    int[][] currentState; //representing the current state of the board as a 2D array
-    int limit; //the limit on how deep minimax can go, based on the difficulty level selected by the user
+    Position currentState; //representing the current state of the board, packed into bit masks (see the Position class)
+    History history; //the positions the game has been through, for spotting draws
     JFrame frame; //the GUI frame, to be received from the Game class
     ArrayList<Square> squares; //a container to store all the squares on the board in
+    Position shownState; //the state the squares are currently showing (null until they first show one)
     boolean pieceSelected; //whether or not the user has selected a piece to move
     boolean jumpRequest; //whether or not the user is trying to jump with a piece
     int fromX; //the x position the user wants to move a piece from
     int fromY; //the y position the user wants to move a piece from
     boolean moveMade; //whether or not the user has successfully made a move this turn
-    ArrayList<StatesAndScores> successorEvaluations; //a container for the possible next states and their values
+    boolean thinking; //whether the computer is working out its move (the user's clicks are ignored until it has)
+    boolean gameOver; //whether somebody has won
+    SwingWorker<EngineMove, Void> worker; //the background search for the computer's move, while there is one
+    SearchLimits workerLimits; //the limits of that search, cancelled to stop it
+    int newThreads; //threads asked for while the computer was thinking, to change to once it has moved (0 for none)
+    boolean newSplitRoot; //and whether they were to split the root moves
+    Engine engine; //the computer player, which chooses the computer's moves
 
     /**
      * Constructor for objects of class Board
@@ -31,31 +43,34 @@ public class Board
      */
     public Board(JFrame frame)
     {
-        getStartState(); //this will give us an int[][] for our initial currentState
+        getStartState(); //this will give us a Position for our initial currentState
         this.frame = frame; //the frame to add the graphical board display to
         makeBoardRep(frame); //make the board display
         pieceSelected = false; //no piece selected by the user, initially
         jumpRequest = false; //no jump requested as yet
         moveMade = false; //no move made as yet
-        successorEvaluations = new ArrayList<>();
+        engine = new Engine();
+        engine.setPondering(true); //think on the user's time
     }
     
     /**
-     * Initialise the game's currentState, with the board represented by an 8x8 2D array of integers. 
-     * 1's indicate that a black piece is occupying the corresponding square, and 2's represent white pieces. 
+     * Initialise the game's currentState. As an 8x8 2D array of integers it would look like the one below, where
+     * 1's indicate that a black piece is occupying the corresponding square, and 2's represent white pieces.
      * A position with a 0 value is unoccupied.
+     *   {0,1,0,1,0,1,0,1},
+     *   {1,0,1,0,1,0,1,0},
+     *   {0,1,0,1,0,1,0,1},
+     *   {0,0,0,0,0,0,0,0},
+     *   {0,0,0,0,0,0,0,0},
+     *   {2,0,2,0,2,0,2,0},
+     *   {0,2,0,2,0,2,0,2},
+     *   {2,0,2,0,2,0,2,0}
      */
     public void getStartState()
     {
-        currentState = new int[][]{
-            {0,1,0,1,0,1,0,1},
-            {1,0,1,0,1,0,1,0},
-            {0,1,0,1,0,1,0,1},
-            {0,0,0,0,0,0,0,0},
-            {0,0,0,0,0,0,0,0},
-            {2,0,2,0,2,0,2,0},
-            {0,2,0,2,0,2,0,2},
-            {2,0,2,0,2,0,2,0}};
+        currentState = Position.getStartPosition();
+        history = new History();
+        history.push(currentState, 1); //the computer moves first
     }
     
     /**
@@ -115,13 +130,22 @@ public class Board
     
     /**
      * Match the currentState of the game (which positions are occupied by which pieces), with what is 
-     * displayed on the graphical board, making sure pieces are visible where they should be.
+     * displayed on the graphical board, making sure pieces are visible where they should be. Only the squares
+     * that have changed since the board was last updated are touched.
      */
     public void placePieces()
     {
-        for (Square square : squares) {
-            square.addPiece(currentState);
+        int changed = -1; //a bit set for every dark square to update: all of them, the first time
+        if (shownState!=null) {
+            changed = (shownState.black ^ currentState.black) | (shownState.white ^ currentState.white)
+                    | (shownState.kings ^ currentState.kings);
+        }
+        while (changed!=0) {
+            int s = Integer.numberOfTrailingZeros(changed);
+            squares.get(8*Position.row(s) + Position.col(s)).addPiece(currentState.pieceAt(s)); //the squares are stored row by row
+            changed &= changed - 1;
         }
+        shownState = currentState.copy();
     }
     
     /**
@@ -131,10 +155,17 @@ public class Board
      */
     public void moveRequest(Square square)
     {
+        if (thinking) { //it's not the user's turn yet
+            System.out.println("Hold on, the computer is thinking...");
+            System.out.println("");
+            return;
+        }
+        if (gameOver) {
+            return; }
         int x = square.xPos; //the x position of the square on the board
         int y = square.yPos; //the y position of the square on the board
         boolean king; //to store whether or not the piece on the square is a king
-        if (currentState[x][y]==4) { //checking if the square is occupied by a king
+        if (currentState.pieceAt(x,y)==4) { //checking if the square is occupied by a king
             king = true; }
         if (!pieceSelected) { //if the user has yet to select a piece to move (until now)
             if (takesPossState(2,currentState)) { //if the user could take a piece in the current game state
@@ -152,7 +183,7 @@ public class Board
                 }
             }
             //if a take isn't possible, but the square is occupied by one of the player's pieces
-            else if (currentState[x][y]==2 || currentState[x][y]==4) {
+            else if (currentState.pieceAt(x,y)==2 || currentState.pieceAt(x,y)==4) {
                 fromX = x; //x as position to move from
                 fromY = y; //y as position to move from
                 pieceSelected = true;
@@ -275,179 +306,154 @@ public class Board
                     pieceSelected = false;
             }
         }
+        if (moveMade) { //the user's turn is over, so hand over to the computer
+            moveMade = false;
+            history.push(currentState, 1);
+            if (!checkForWinner()) {
+                computerTurn(); }
+        }
     }
     
     /**
-     * Called from the play() method of the Game class, a method to get the computer's next move and update
-     * the board accordingly.
+     * Start the computer's turn: work out its move on a background thread, then (back on the Swing event thread)
+     * make the move on the board and hand the turn to the user. Called when the game starts and after each of
+     * the user's moves.
      */
-    public void getAIMove()
+    public void computerTurn()
     {
-        if (limit==0) { //if the lowest difficulty level has been selected
-            Random rand = new Random();
-            ArrayList<int[][]> availableStates = getPossibleStates(currentState,1); //get the possible next states
-            if (availableStates.size()==0) { //if no move is possible, do nothing
-                currentState = currentState;
+        thinking = true;
+        Position state = currentState.copy(); //the search gets its own copy, so nothing it uses is shared with the event thread
+        History past = history.copy();
+        SearchLimits limits = engine.getLimits(); //those of the difficulty level, made here so that moveNow() can't miss the search
+        workerLimits = limits;
+        worker = new SwingWorker<EngineMove, Void>() {
+            @Override
+            protected EngineMove doInBackground()
+            {
+                return engine.chooseMove(state, 1, past, limits);
             }
-            else { //pick a random state from the possible options and make that the currentState
-                int i = rand.nextInt(availableStates.size());
-                currentState = availableStates.get(i);
+
+            @Override
+            protected void done()
+            {
+                if (isCancelled()) { //the move is no longer wanted
+                    return; }
+                EngineMove move;
+                try {
+                    move = get();
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    throw new RuntimeException("the computer's search failed", e);
+                }
+                if (move!=null) { //if no move was possible there is nothing to change
+                    currentState = move.position;
+                    history.push(currentState, 2);
+                }
+                placePieces(); //update the board
+                worker = null;
+                workerLimits = null;
+                thinking = false; //the user's turn
+                if (newThreads > 0) { //asked for while the computer was thinking
+                    engine.setThreads(newThreads, newSplitRoot);
+                    newThreads = 0;
+                }
+                if (!checkForWinner()) {
+                    engine.ponder(currentState, history); } //think about the user's likely replies while they decide
             }
-        }
-        else { //if any other difficulty level has been selected
-            minimax(currentState, 0, 1, Integer.MIN_VALUE, Integer.MAX_VALUE); //call minimax
-            int[][] bestState = getBestState(); //get the bestState in the wake of the minimax call
-            currentState = bestState; //make that best state the currentState
-        }
-        placePieces(); //update the board
+        };
+        worker.execute();
     }
-    
+
     /**
-     * A method to get the possible next states for either player - although this only applies to player 2
-     * (the user) for the purposes of the minimax evaluation.
-     * @param int[][] the state you want to get the next states for
-     * @param int the player in question
-     * @return ArrayList<int[][]> an ArrayList of the possible next states
+     * Tell the computer to stop thinking and play the best move it has found so far.
      */
-    public ArrayList<int[][]> getPossibleStates(int[][] state, int player)
+    public void moveNow()
     {
-        int king = setKing(player); //set an appropriate number (3/4) for the king, given the player
-        ArrayList<int[][]> possibleStates = new ArrayList<>(); //initialise the ArrayList
-        possibleStates = getJumpStatesState(state, possibleStates, player, king); //get any next states resulting from a jump/take
-        if (possibleStates.size()==0) { //if a jump is not possible from the given state
-            possibleStates = getStepStates(state, possibleStates, player, king); //get states resulting from a step
-        }
-        return possibleStates; //return the possible states
+        if (thinking && workerLimits!=null) {
+            workerLimits.cancel(); }
     }
-    
+
     /**
-     * A method to get the possible next states from the current state that would occur as a result of a jump.
-     * @param int[][] state the state to get the next states for
-     * @param ArrayList<int[][]> possibleStates an ArrayList of the possible next states
-     * @param int player the player in question
-     * @param int king the number corresponding to a king for the player in question
-     * @return ArrayList<int[][]> an ArrayList of the possible next states
+     * Stop the computer's search and throw its result away, for example when the game is closed.
      */
-    public ArrayList<int[][]> getJumpStatesState(int[][] state, ArrayList<int[][]> possibleStates, int player, int king)
+    public void cancelSearch()
     {
-        for (int i = 0; i < 8; i++) { //for each row on the board
-            for (int j = 0; j < 8; j++) { //for each column on the board
-                if (state[i][j]==player || state[i][j]==king) { //if the player has a piece in this position
-                    if (jumpPoss(player,state,i,j,i+1,j+1,i+2,j+2)) { //if they can make a jump in this direction
-                        int[][] clone = makeJump(state,player,i,j,i+1,j+1,i+2,j+2); //record the resulting state as a new state
-                        if (takesPossPosition(player, clone, i+2, j+2)) { //if the same piece can make another jump, get those possible states
-                            possibleStates = getJumpStatesPosition(clone, i+2, j+2, possibleStates, player, king); }
-                        else { //add the new state to possibleStates
-                            possibleStates.add(clone); }
-                    }
-                    if (jumpPoss(player,state,i,j,i+1,j-1,i+2,j-2)) { //the same as above, but in a different direction
-                        int[][] clone = makeJump(state,player,i,j,i+1,j-1,i+2,j-2);
-                        if (takesPossPosition(player, clone, i+2, j-2)) {
-                            possibleStates = getJumpStatesPosition(clone, i+2, j-2, possibleStates, player, king); }
-                        else {
-                            possibleStates.add(clone); }
-                    }
-                    if (jumpPoss(player,state,i,j,i-1,j+1,i-2,j+2)) { //the same as above, but in a different direction
-                        int[][] clone = makeJump(state,player,i,j,i-1,j+1,i-2,j+2);
-                        if (takesPossPosition(player, clone, i-2, j+2)) {
-                            possibleStates = getJumpStatesPosition(clone, i-2, j+2, possibleStates, player, king); }
-                        else {
-                            possibleStates.add(clone); }
-                    }
-                    if (jumpPoss(player,state,i,j,i-1,j-1,i-2,j-2)) { //the same as above, but in a different direction
-                        int[][] clone = makeJump(state,player,i,j,i-1,j-1,i-2,j-2);
-                        if (takesPossPosition(player, clone, i-2, j-2)) {
-                            possibleStates = getJumpStatesPosition(clone, i-2, j-2, possibleStates, player, king); }
-                        else {
-                            possibleStates.add(clone); }
-                    }
-                }
-            }
+        if (worker!=null) {
+            worker.cancel(false);
+            workerLimits.cancel();
+            worker = null;
+            workerLimits = null;
+            thinking = false;
         }
-        return possibleStates; //return the possible next states that were found
     }
-    
+
     /**
-     * A method to get the possible next states in the wake of a jump that would occur as the result of another jump.
-     * @param int[][] state the state to get the next states for
-     * @param int i the row the piece that has just made a jump is in
-     * @param int j the column the piece that has just made a jump is in
-     * @param ArrayList<int[][]> possibleStates an ArrayList of the possible next states
-     * @param int player the player in question
-     * @param int king the number corresponding to a king for the player in question
-     * @return ArrayList<int[][]> an ArrayList of the possible next states
+     * See whether either player has won, or the game is a draw (see History), and if so say so and end the game.
+     * @return boolean whether the game is over
      */
-    public ArrayList<int[][]> getJumpStatesPosition(int[][] state, int i, int j, ArrayList<int[][]> possibleStates, int player, int king)
+    public boolean checkForWinner()
     {
-        //follows the same process as the body of the method above, checking for possible jumps from the given state in each direction
-        if (jumpPoss(player,state,i,j,i+1,j+1,i+2,j+2)) { 
-            int[][] clone = makeJump(state,player,i,j,i+1,j+1,i+2,j+2);
-            if (takesPossPosition(player, clone, i+2, j+2)) {
-                possibleStates = getJumpStatesPosition(clone, i+2, j+2, possibleStates, player, king); } //recursive call if yet another jump is possible
-            else {
-                possibleStates.add(clone); }
-        }
-        if (jumpPoss(player,state,i,j,i+1,j-1,i+2,j-2)) {
-            int[][] clone = makeJump(state,player,i,j,i+1,j-1,i+2,j-2);
-            if (takesPossPosition(player, clone, i+2, j-2)) {
-                possibleStates = getJumpStatesPosition(clone, i+2, j-2, possibleStates, player, king); }
-            else {
-                possibleStates.add(clone); }
-        }
-        if (jumpPoss(player,state,i,j,i-1,j+1,i-2,j+2)) {
-            int[][] clone = makeJump(state,player,i,j,i-1,j+1,i-2,j+2);
-            if (takesPossPosition(player, clone, i-2, j+2)) {
-                possibleStates = getJumpStatesPosition(clone, i-2, j+2, possibleStates, player, king); }
+        if (wWins(currentState)) { //if the human has won
+            System.out.println("*******");
+            System.out.println("You won! Now try a harder computer setting...");
+            System.out.println("");
+            gameOver = true;
+        }
+        if (bWins(currentState)) { //if the computer has won
+            System.out.println("*******");
+            System.out.println("The computer won! Ha.");
+            System.out.println("");
+            gameOver = true;
+        }
+        if (!gameOver && history.isDraw()) { //if the game is going nowhere
+            System.out.println("*******");
+            if (history.noProgress()) {
+                System.out.println("It's a draw: forty moves each without a man moving or a piece being taken."); }
             else {
-                possibleStates.add(clone); }
+                System.out.println("It's a draw: the same position has come up three times."); }
+            System.out.println("");
+            gameOver = true;
         }
-        if (jumpPoss(player,state,i,j,i-1,j-1,i-2,j-2)) {
-            int[][] clone = makeJump(state,player,i,j,i-1,j-1,i-2,j-2);
-            if (takesPossPosition(player, clone, i-2, j-2)) {
-                possibleStates = getJumpStatesPosition(clone, i-2, j-2, possibleStates, player, king); }
-            else {
-                possibleStates.add(clone); }
+        if (gameOver) {
+            engine.setPondering(false);
+            System.out.println(engine.ponderReport()); //how often the computer saw the user's move coming
         }
-        return possibleStates;
+        return gameOver;
     }
-    
+
     /**
-     * A method to get the possible next states from the current state that would occur as a result of a step.
-     * @param int[][] state the state to get the next states for
-     * @param ArrayList<int[][]> possibleStates an ArrayList of the possible next states
-     * @param int player the player in question
-     * @param int king the number corresponding to a king for the player in question
-     * @return ArrayList<int[][]> an ArrayList of the possible next states
+     * A method to get the computer's next move and update the board accordingly, all on the calling thread.
+     * The game itself uses computerTurn() instead, so as not to hold up the GUI while the computer thinks.
      */
-    public ArrayList<int[][]> getStepStates(int[][] state, ArrayList<int[][]> possibleStates, int player, int king)
+    public void getAIMove()
     {
-        if (possibleStates.size()==0) {
-            for (int i = 0; i < 8; i++) {
-                for (int j = 0; j < 8; j++) {
-                    if (state[i][j]==player || state[i][j]==king) { //if the player has a piece in this square
-                        if (stepPoss(player,state,i,j,i+1,j+1)) { //if it is possible to step in this direction
-                            int[][] clone = makeStep(state,player,i,j,i+1,j+1); //record the resulting state as a new state
-                            possibleStates.add(clone); } //add that state to possible states
-                        if (stepPoss(player,state,i,j,i+1,j-1)) {
-                            int[][] clone = makeStep(state,player,i,j,i+1,j-1);
-                            possibleStates.add(clone); }
-                        if (stepPoss(player,state,i,j,i-1,j+1)) {
-                            int[][] clone = makeStep(state,player,i,j,i-1,j+1);
-                            possibleStates.add(clone); }
-                        if (stepPoss(player,state,i,j,i-1,j-1)) {
-                            int[][] clone = makeStep(state,player,i,j,i-1,j-1);
-                            possibleStates.add(clone); }
-                    }
-                }
-            }
+        getAIMove(null);
+    }
+
+    /**
+     * As above, but within a set of limits on the search (see SearchLimits), which another thread can cancel to
+     * have the computer play the best move it has found so far.
+     * @param SearchLimits limits the limits on the search, or null for those of the difficulty level set
+     */
+    public void getAIMove(SearchLimits limits)
+    {
+        EngineMove move = engine.chooseMove(currentState, 1, history, limits); //the engine works out the move, within the limits
+        if (move!=null) { //if no move was possible there is nothing to change
+            currentState = move.position; //make the position it reaches the currentState
+            history.push(currentState, 2);
         }
-        return possibleStates; //return the possible states
+        placePieces(); //update the board
     }
     
+    /*
+     * The methods below check and make the user's moves on the packed currentState. They take rows and columns,
+     * as moveRequest() does, and hand over to the MoveGenerator class.
+     */
+    
     /**
      * Method to see whether a jump is possible from one given position to another.
      * @param int player the player who would be making the jump
-     * @param int[][] state the game state the jump would be made from
+     * @param Position state the game state the jump would be made from
      * @param int i the row the piece is jumping from
      * @param int j the column the piece is jumping from
      * @param int i1 the row the piece is jumping over
@@ -456,124 +462,54 @@ public class Board
      * @param int j2 the column the piece is jumping to
      * @return boolean whether or not the jump is possible
      */
-    public boolean jumpPoss(int player, int[][] state, int i, int j, int i1, int j1, int i2, int j2)
+    public boolean jumpPoss(int player, Position state, int i, int j, int i1, int j1, int i2, int j2)
     {
-        int king = setKing(player); //get the appropriate number representing a king for the given player
-        if (i2<0 || i2>7 || j2<0 || j2>7) { //if the square to jump to does not exist on the board
-            return false;
-        }
-        if (state[i][j]!=player && state[i][j]!=king) { //if the square being jumped from is not occupied by the player
-            return false; 
-        }
-        if (state[i2][j2]!=0) { //if the square to jump to is not empty
-            return false;
-        }
-        if (player==1) { //if the computer is moving
-            if (i2 < i && state[i][j]!=king) { //if the move is up the board, and the piece is not a king
-                return false; }
-            else if (state[i1][j1]!=2 && state[i1][j1]!=4) { //if the square being jumped over is not occupied by the opponent
-                return false; }
-            else {
-                return true; }
-        }
-        else { //if the user is moving
-            if (i2 > i && state[i][j]!=king) { //if the move is down the board, and the piece is not a king
-                return false; }
-            else if (state[i1][j1]!=1 && state[i1][j1]!=3) { //if the square being jumped over is not occupied by the opponent
-                return false; }
-            else {
-                return true; }
-        }
+        return MoveGenerator.jumpPoss(state, player, Position.square(i,j), MoveGenerator.direction(i2-i, j2-j));
+    }
+    
+    /**
+     * Method to see whether a step is possible from one given position to another.
+     * @param int player the player who would be making the step
+     * @param Position state the game state the step would be made from
+     * @param int i the row the piece is stepping from
+     * @param int j the column the piece is stepping from
+     * @param int i1 the row the piece is moving to
+     * @param int j1 the column the piece is moving to
+     * @return boolean whether or not the step is possible
+     */
+    public boolean stepPoss(int player, Position state, int i, int j, int i1, int j1)
+    {
+        return MoveGenerator.stepPoss(state, player, Position.square(i,j), MoveGenerator.direction(i1-i, j1-j));
     }
     
     /**
      * A method to determine whether a given player can make a take from the current game state.
      * @param int player the player in question
-     * @param int[][] state the state in question
+     * @param Position state the state in question
      * @return boolean whether or not a take is possible
      */
-    public boolean takesPossState(int player, int[][] state)
+    public boolean takesPossState(int player, Position state)
     {
-        boolean takePoss = false;
-        //check to see if jump is possible from each square, in each direction
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                if (jumpPoss(player,state,i,j,i-1,j+1,i-2,j+2)) {
-                    takePoss = true; }
-                if (jumpPoss(player,state,i,j,i-1,j-1,i-2,j-2)) {
-                    takePoss = true; }
-                if (jumpPoss(player,state,i,j,i+1,j+1,i+2,j+2)) {
-                    takePoss = true; }
-                if (jumpPoss(player,state,i,j,i+1,j-1,i+2,j-2)) {
-                    takePoss = true; }
-            }
-        }
-        return takePoss;
+        return MoveGenerator.hasCapture(state, player);
     }
     
     /**
      * A method to determine whether a given player can make a take with a piece in a given position.
      * @param int player the player in question
-     * @param int[][] state the state in question
+     * @param Position state the state in question
      * @param int i the row the selected piece is in
      * @param int j the column the selected piece is in
      * @return boolean whether or not a take is possible
      */
-    public boolean takesPossPosition(int player, int[][] state, int i, int j)
+    public boolean takesPossPosition(int player, Position state, int i, int j)
     {
-        boolean takePoss = false;
-        //from the given position, check whether a jump is possible in each direction
-        if (jumpPoss(player,state,i,j,i-1,j+1,i-2,j+2)) {
-            takePoss = true; }
-        if (jumpPoss(player,state,i,j,i-1,j-1,i-2,j-2)) {
-            takePoss = true; }
-        if (jumpPoss(player,state,i,j,i+1,j+1,i+2,j+2)) {
-            takePoss = true; }
-        if (jumpPoss(player,state,i,j,i+1,j-1,i+2,j-2)) {
-            takePoss = true; }
-        return takePoss;
-    }
-    
-    
-    /**
-     * Method to see whether a step is possible from one given position to another.
-     * @param int player the player who would be making the step
-     * @param int[][] state the game state the step would be made from
-     * @param int i the row the piece is stepping from
-     * @param int j the column the piece is stepping from
-     * @param int i1 the row the piece is moving to
-     * @param int j1 the column the piece is moving to
-     * @return boolean whether or not the step is possible
-     */
-    public boolean stepPoss(int player, int[][] state, int i, int j, int i1, int j1)
-    {
-        int king = setKing(player);
-        if (i1<0 || i1>7 || j1<0 || j1>7) { //if trying to move to square that does not exist
-            return false;
-        }
-        if (state[i][j]!=player && state[i][j]!=king) { //if moving from square not occupied by player
-            return false; 
-        }
-        if (state[i1][j1]!=0) { //if moving to square that is not empty
-            return false;
-        }
-        if (player==1) { //if computer
-            if (i1 < i && state[i][j]!=king) { //if stepping up the board and piece is not a king
-                return false; }
-            else {
-                return true; }
-        }
-        else { //if user
-            if (i1 > i && state[i][j]!=king) { //if moving down the board and piece is not a king
-                return false; }
-            else {
-                return true; }
-        }
+        int s = Position.square(i,j);
+        return s>=0 && MoveGenerator.hasCaptureFrom(state, player, s);
     }
     
     /**
      * Method to make a jump, then return the resulting state as a new state.
-     * @param int[][] state the game state the jump is happening from
+     * @param Position state the game state the jump is happening from
      * @param int player the player making the jump
      * @param int i the row the piece is jumping from
      * @param int j the column the piece is jumping from
@@ -581,260 +517,90 @@ public class Board
      * @param int j1 the column the piece is jumping over
      * @param int i2 the row the piece is jumping to
      * @param int j2 the column the piece is jumping to
-     * @return int[][] the resulting state
+     * @return Position the resulting state
      */
-    public int[][] makeJump(int[][] state, int player, int i, int j, int i1, int j1, int i2, int j2)
+    public Position makeJump(Position state, int player, int i, int j, int i1, int j1, int i2, int j2)
     {
-        int[][] clone = cloneState(state);
-        int king = setKing(player);
-        if (state[i][j]==king) {
-            player = king; }
-        clone[i][j] = 0;
-        clone[i1][j1] = 0;
-        if(kingCheck(player,i2)) {
-            clone[i2][j2] = king; }
-        else {
-            clone[i2][j2] = player; }
-        return clone;
+        return MoveGenerator.makeJump(state, player, Position.square(i,j), MoveGenerator.direction(i2-i, j2-j));
     }
     
     /**
      * Method to make a step, then return the resulting state as a new state
-     * @param int[][] state the game state the step is being made from
+     * @param Position state the game state the step is being made from
      * @param int player the player making the step
      * @param int i the row the piece is stepping from
      * @param int j the column the piece is stepping from
      * @param int i1 the row the piece is moving to
      * @param int j1 the column the piece is moving to
-     * @return int[][] the resulting state
+     * @return Position the resulting state
      */
-    public int[][] makeStep(int[][] state, int player, int i, int j, int i1, int j1)
+    public Position makeStep(Position state, int player, int i, int j, int i1, int j1)
     {
-        int[][] clone = cloneState(state);
-        int king = setKing(player);
-        if (state[i][j]==king) {
-            player = king; }
-        clone[i][j] = 0;
-        if(kingCheck(player,i1)) {
-            clone[i1][j1] = king; }
-        else {
-            clone[i1][j1] = player; }
-        return clone;
-    }
-    
-    /**
-     * A method to clone a given state.
-     * @param int[][] the state to be cloned
-     * @return int[][] the clone
-     */
-    public int[][] cloneState(int[][] state)
-    {
-        int[][] clone = new int[8][8]; //initialising the clone state
-        int temp; //an int to keep a record of numbers being passed from one int[][] to the other
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                temp = state[i][j];
-                clone[i][j] = temp;
-            }
-        }
-        return clone;
-    }
-    
-    /**
-     * A method to return the appropriate number representing a king piece for a given player.
-     * @param int player the player in question
-     * @return int the number representing a king piece
-     */
-    public int setKing(int player)
-    {
-        int king;
-        if (player==1) {
-            king = 3; }
-        else {
-            king = 4; }
-        return king;
-    }
-    
-    /**
-     * Checking for when a piece reaches the end of the board and needs to be come a king.
-     * @param int player the player who's piece it is
-     * @param x the row on the board the piece has reached
-     * @return boolean whether or not the piece is now a king
-     */
-    public boolean kingCheck(int player, int x)
-    {
-        if (player==1 && x==7) {
-            return true; }
-        else if (player==2 && x==0) {
-            return true; }
-        else {
-            return false; }
+        return MoveGenerator.makeStep(state, player, Position.square(i,j), MoveGenerator.direction(i1-i, j1-j));
     }
     
     /**
      * Checking to see if the user has won the game in a given state.
-     * @param int[][] the state we want to check for
+     * @param Position the state we want to check for
      * @return boolean whether or not the user wins in this state
      */
-    public boolean wWins(int[][] state)
+    public boolean wWins(Position state)
     {
-        boolean wins = false;
-        int bCount = 0; //to count the number of black pieces
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                if(state[i][j]==1 || state[i][j]==3) { //include the presence of kings
-                    bCount++; }
-            }
-        }
-        if (bCount==0) { //if there are no black pieces
-            wins = true; }
-        return wins;
+        return state.whiteWins();
     }
     
     /**
      * Checking to see if the computer has won the game in a given state.
-     * @param int[][] the state we want to check for
+     * @param Position the state we want to check for
      * @return boolean whether or not the computer wins in this state
      */
-    public boolean bWins(int[][] state)
+    public boolean bWins(Position state)
     {
-        boolean wins = false;
-        int wCount = 0;
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                if(state[i][j]==2 || state[i][j]==4) {
-                    wCount++; }
-            }
-        }
-        if (wCount==0) {
-            wins = true; }
-        return wins;
+        return state.blackWins();
     }
     
     /**
-     * The minimax algorithm that is called by getAIMove that calls itself recursively to get a value for each possible next state. 
-     * Goes to a depth specified by a limit set by the difficulty level (see setLimit() below), passing a value up the tree when that depth is reached,
-     * when a state is reached in which one of the players wins, or when a state is reached in which the player cannot make any more moves.
-     * @param int[][] state the state from which it is being called
-     * @param int depth how far it is going down the search tree
-     * @param int player the player who is making the next (imaginary) move
-     * @param int alpha the value of alpha at the previous state
-     * @param int beta the value of beta at the previous state
-     * @return int a value corresponding to the result reached
+     * Set how many threads the computer searches with (see Engine.setThreads()).
+     * @param int the number of threads
      */
-    public int minimax(int[][] state, int depth, int player, int alpha, int beta)
+    public void setThreads(int threads)
     {
-        int bestScore;
-        if(player==1) {
-            bestScore = -24; } //the worst possible score for the computer (that isn't even possible), when there are 12 white kings on the board and nothing else
-        else {
-            bestScore = 24; } //the worst possible score for the human (that isn't even possible), when there are 12 black kings on the board and nothing else
-        ArrayList<int[][]> availableStates = getPossibleStates(state, player); //the available states from the given state
-        
-        if (depth==0) { //if this call has come from getAIMove(), start the evaluations afresh
-            successorEvaluations.clear();
-        }
-
-        if (bWins(state)) { //give a high value for the computer winning - this is the ultimate goal, after all!
-            return 24;
-        }
-        if (wWins(state)) { //give a low value for the human winning - this is the ultimate goal, after all!
-            return -24;
-        }
-        if (availableStates.isEmpty()) { //if no moves can be made, a draw
-            return 0;
-        }
-        if (depth==limit) { //if the depth limit has been hit, evaluate the state reached
-            int value = evaluateState(state);
-            return value;
-        }
-        
-        for (int i=0; i < availableStates.size(); i++) { //going down the search tree, depth-first
-            int[][] s = availableStates.get(i);
-            if (player==1) {
-                int currentScore = minimax(s, depth + 1, 2, alpha, beta); //get the minimax value for the other player at the next level down
-                bestScore = Math.max(bestScore, currentScore); //if currentScore from minimax evaluation just carried out is better than bestScore, update bestScore
-                alpha = Math.max(currentScore, alpha); //if currentScore from minimax evaluation just carried out is better than alpha, update alpha
-                if (depth==0) { //when we've run through all the recursive calls and reached the top again, store the value found with the next state in question
-                    successorEvaluations.add(new StatesAndScores(s, currentScore)); } 
-            }
-            else if (player==2) {
-                int currentScore = minimax(s, depth + 1, 1, alpha, beta); //get the minimax value for the other player at the next level down
-                bestScore = Math.min(bestScore, currentScore); //if currentScore from minimax evaluation just carried out is better (lower) than bestScore, update bestScore
-                beta = Math.min(currentScore, beta); //if currentScore from minimax evaluation just carried out is better (lower) than beta, update beta
-            }
-            if (alpha>=beta) { //there is no point going any further, so break out of the for loop
-                break;
-            }
-        }
-        return bestScore; //pass the best score found at this depth up a level
+        setThreads(threads, false);
     }
-    
+
     /**
-     * A method to return a value for the state reached when the depth limit has been hit in minimax. This operates as a heuristic, with the value calculated
-     * by subtracting the number of white pieces from the number of black pieces, then adding the number of black kings (multiplied by 2, to give kings more
-     * weight), and subtracting the number of white kings (multiplied by 2, again). In the minimax algorithm, the player who represents "MAX" (player 1 / the
-     * computer) wants this to be a high score, and "MIN" (player 2 / the user) wants it to be low.
-     * @param int[][] the state reached
-     * @return int the value given
+     * As above, with the choice of sharing out the root moves between the threads instead of having them all
+     * search the same tree. If the computer is thinking, the change is made once it has moved, so as not to
+     * hold up the GUI until then.
+     * @param int threads the number of threads
+     * @param boolean splitRoot whether to share out the root moves
      */
-    public int evaluateState(int[][] state)
+    public void setThreads(int threads, boolean splitRoot)
     {
-        int bCount = 0; //to monitor the number of black pieces
-        int wCount = 0; //to monitor the number of white pieces
-        int bKCount = 0; //to monitor the number of black kings
-        int wKCount = 0; //to monitor the number of white kings
-        //search through each square in the current state, updating the counts when we encounter corresponding pieces
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                if (state[i][j]==1) {
-                    bCount++; }
-                else if (state[i][j]==2) {
-                    wCount++; }
-                else if (state[i][j]==3) {
-                    bKCount++; }
-                else if (state[i][j]==4) {
-                    wKCount++; }
-            }
+        if (thinking) {
+            newThreads = threads;
+            newSplitRoot = splitRoot;
         }
-        int value = bCount - wCount + (2*bKCount) - (2*wKCount); //giving extra weight to kings
-        return value;
+        else {
+            engine.setThreads(threads, splitRoot); }
     }
     
     /**
-     * Searches through our ArrayList of successorEvaluations and returns the best next state given the current state.
-     * @return int[][] the best next state
+     * Set how long the computer may think about each move (see Engine.setTimeBudget()).
+     * @param long the number of milliseconds to allow, or 0 to always search to the limit
      */
-    public int[][] getBestState()
+    public void setTimeBudget(long milliseconds)
     {
-        int maxScore = Integer.MIN_VALUE;
-        int[][] bestState = null;
-        
-        for (int i=0; i<successorEvaluations.size(); i++) {
-            if (maxScore < successorEvaluations.get(i).score) {
-                maxScore = successorEvaluations.get(i).score;
-                bestState = successorEvaluations.get(i).state;
-            }
-        }
-        return bestState;
+        engine.setTimeBudget(milliseconds);
     }
     
     /**
-     * Set a limit on the number of static evaluations the minimax algorithm can make, based on the difficulty
-     * level selected by the user before starting the game.
+     * Set how well the computer plays, based on the difficulty level selected by the user before starting the
+     * game (see Engine.setLimit()).
      * @param int the difficulty level selected.
      */
     public void setLimit(int difficulty)
     {
-        if (difficulty==0) {
-            limit = 0; }
-        else if (difficulty==1) {
-            limit = 1; }
-        else if (difficulty==2) {
-            limit = 2; }
-        else if (difficulty==3) {
-            limit = 5; }
-        else {
-            limit = 10; }
+        engine.setLimit(difficulty);
     }
 }
\ No newline at end of file
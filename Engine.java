@@ -0,0 +1,662 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+/**
+ * The computer player, with no display: given a position and the player to move, it chooses a move and says what
+ * score it found for it. It uses nothing from AWT or Swing, so it can be run on a machine without a display,
+ * for example for games played between two engines. Board asks one of these for each of the computer's moves.
+ * 
+ * With pondering on, the engine keeps thinking while the user does. After each of its moves, ponder() ranks
+ * the user's possible replies with a quick search, then searches its own answer to each of the most likely
+ * ones in turn, just as chooseMove() would, filling the table as it goes and keeping each answer it finishes.
+ * When the user then plays one of those replies the answer is ready at once; otherwise the table still holds
+ * much of what the search needs. The share of the user's moves answered straight away is the ponder hit rate
+ * (see ponderReport()).
+ * 
+ * At the higher difficulty levels, while the game is still in the opening book (see OpeningBook), the engine
+ * plays the book's move without searching. Once few enough pieces are left, if the endgame tables have been
+ * built (see TableBase), the engine plays the best move from them without searching; before that, the search
+ * uses them too.
+ * 
+ * Each move worked out is recorded in SearchMetrics, which publishes what the search did over JMX and to Java
+ * Flight Recorder.
+ * 
+ * Running this class (java Engine [level] [position] [-white]) prints the move chosen at the given difficulty
+ * level (default 3), from the given position (written as by Position.toString(), default the start).
+ * 
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class Engine
+{
+    int limit; //the limit on how deep minimax can go, based on the difficulty level
+    long timeBudget; //how many milliseconds may be spent deepening the search each move (0 for no limit)
+    long nodeBudget; //how many positions may be searched each move (0 for no limit)
+    Search search; //the search used to find moves, which changes one position in place
+    int tableBits; //the size of the search's table, as a power of two (see TranspositionTable)
+    OpeningBook book; //the moves to play at the start of a game, or null if there is no book
+    LazySmp parallelSearch; //used instead of search when more than one thread is asked for (null otherwise)
+    ParallelSearch rootSearch; //used instead, when the root moves are to be split between the threads (null otherwise)
+    boolean reproducible; //whether parallelSearch should play the same moves however its threads are scheduled
+    int[] rootMoves; //the moves from the position the original minimax was called on, in the order it searched them
+    int[] rootScores; //the value it found for each of them
+    int rootCount; //the number of those moves that have been searched
+    Random rand; //for choosing moves at the lowest difficulty level
+    boolean pondering; //whether to think about the user's likely replies while waiting for their move
+    int ponderReplies; //how many of the user's replies to work out answers for
+    ExecutorService ponderThread; //the thread pondering runs on (made the first time it's needed)
+    volatile Future<?> ponderTask; //the pondering under way, or null if there isn't any
+    volatile SearchLimits ponderLimits; //the limits of the pondering under way, cancelled to stop it
+    volatile SearchLimits running; //the limits of the search chooseMove() is making, for stop() to cancel
+    HashMap<Position, EngineMove> answers; //the answers worked out while pondering, by the position after the user's reply
+    SearchLimits answerLimits; //the limits the answers were worked out within
+    History answerHistory; //the positions the game had been through when they were worked out, or null for none
+    boolean pondered; //whether the last position pondered on is still waiting for the user's reply
+    long ponderHits; //the number of the user's moves that had an answer ready
+    long ponderMisses; //the number that didn't
+
+    static final int PONDER_RANK_DEPTH = 6; //how deep to search each of the user's replies, to guess which are likely
+
+    /**
+     * Constructor for objects of class Engine. It starts at the difficulty level "alright" (1), with two
+     * seconds a move.
+     */
+    public Engine()
+    {
+        this(20);
+    }
+
+    /**
+     * Constructor for objects of class Engine, with a table of a given size (see TranspositionTable), for when
+     * many engines share one machine (see GameServer).
+     * @param int tableBits the size of the search's table, as a power of two
+     */
+    public Engine(int tableBits)
+    {
+        limit = 1;
+        timeBudget = 2000; //two seconds a move
+        this.tableBits = tableBits;
+        search = new Search(new TranspositionTable(tableBits));
+        search.tableBase = TableBase.get(); //null if no tables have been built
+        book = OpeningBook.get();
+        rootMoves = new int[Search.MAX_MOVES];
+        rootScores = new int[Search.MAX_MOVES];
+        rand = new Random();
+        ponderReplies = 3;
+        answers = new HashMap<>();
+        SearchMetrics.get(); //so that the metrics can be watched from the start
+    }
+
+    /**
+     * Choose a move. At the lowest difficulty level the move is picked at random; otherwise the search goes
+     * deeper and deeper, up to the limit, until the time is up or stop() is called. Only one move is chosen at a
+     * time: a second thread calling this waits for the first to finish. Any pondering is stopped first, and if
+     * it already worked out an answer for this position, searched as far and after the same moves, that is
+     * returned straight away.
+     * @param Position pos the position to move from (this is not changed)
+     * @param int player the player to move
+     * @return EngineMove the move chosen, or null if no move is possible
+     */
+    public EngineMove chooseMove(Position pos, int player)
+    {
+        return chooseMove(pos, player, null);
+    }
+
+    /**
+     * As above, in a game that has been through the positions given, so that the search can see when a line
+     * would repeat one of them.
+     * @param Position pos the position to move from (this is not changed)
+     * @param int player the player to move
+     * @param History history the positions so far, ending with pos (this is not changed), or null for none
+     * @return EngineMove the move chosen, or null if no move is possible
+     */
+    public EngineMove chooseMove(Position pos, int player, History history)
+    {
+        return chooseMove(pos, player, history, null);
+    }
+
+    /**
+     * As above, within a set of limits on the search rather than the engine's own depth limit and time budget.
+     * The move returned is the best of the deepest pass that finished before the limits were reached, or if the
+     * limits were cancelled before even the first pass finished, the first move possible. An answer worked out
+     * while pondering is only returned if it was searched within limits at least as wide as these.
+     * @param Position pos the position to move from (this is not changed)
+     * @param int player the player to move
+     * @param History history the positions so far, ending with pos (this is not changed), or null for none
+     * @param SearchLimits limits the limits on the search, or null for the engine's own (see getLimits())
+     * @return EngineMove the move chosen, or null if no move is possible
+     */
+    public EngineMove chooseMove(Position pos, int player, History history, SearchLimits limits)
+    {
+        SearchLimits used = limits!=null ? limits : getLimits();
+        stopPondering(); //outside the lock, which the pondering holds until it stops
+        synchronized (this) { //one caller at a time, from looking for an answer to the end of the search
+            EngineMove ready = player==1 ? answers.get(pos) : null; //answers are only ever worked out for the computer
+            if (ready!=null && !usable(ready, pos, history, used)) {
+                ready = null; }
+            if (pondered) { //the user has replied to the position pondered on: did we see it coming?
+                if (ready!=null) {
+                    ponderHits++; }
+                else {
+                    ponderMisses++; }
+                pondered = false;
+            }
+            answers.clear();
+            if (ready!=null) {
+                return ready; }
+            running = used; //from here until the search is over, stop() cancels it
+            try {
+                return think(pos, player, history, used);
+            }
+            finally {
+                running = null;
+            }
+        }
+    }
+
+    /**
+     * Whether an answer worked out while pondering is the one a search for chooseMove() would find: it must
+     * have been searched at least as far as the caller's limits allow, and with the same recent positions
+     * behind it, as those decide which lines are draws by repetition.
+     * @param EngineMove ready the answer
+     * @param Position pos the position it answers, with the computer to move
+     * @param History history the positions so far, ending with pos, or null for none
+     * @param SearchLimits limits the caller's limits
+     * @return boolean whether the answer can be played
+     */
+    private boolean usable(EngineMove ready, Position pos, History history, SearchLimits limits)
+    {
+        if (limits.maxDepth==0) { //a random move was asked for
+            return false; }
+        if (!answerLimits.covers(limits) && ready.depth < limits.maxDepth) {
+            return false; }
+        return rooted(answerHistory, pos).sameRecent(rooted(history, pos));
+    }
+
+    /**
+     * The positions a search from a position would start with: the game's history, with the position on top.
+     * @param History history the positions so far, or null for none (this is not changed)
+     * @param Position pos the position searched from, with the computer to move
+     * @return History the positions, ending with pos
+     */
+    private static History rooted(History history, Position pos)
+    {
+        History rooted = history!=null ? history.copy() : new History();
+        if (rooted.top()!=Zobrist.key(pos, 1)) { //as Search.iterate() does
+            rooted.push(pos, 1); }
+        return rooted;
+    }
+
+    /**
+     * Work out a move, for chooseMove(), which holds the engine's lock while it does.
+     * @param Position pos the position to move from (this is not changed)
+     * @param int player the player to move
+     * @param History history the positions so far, or null for none
+     * @param SearchLimits limits the limits on the search
+     * @return EngineMove the move chosen, or null if no move is possible
+     */
+    private EngineMove think(Position pos, int player, History history, SearchLimits limits)
+    {
+        useHistory(history);
+        int[] moves = new int[Search.MAX_MOVES];
+        if (limits.maxDepth==0) { //if the lowest difficulty level has been selected
+            int count = MoveGenerator.generateMoves(pos, player, moves);
+            if (count==0) { //if no move is possible, there is nothing to choose
+                return null; }
+            int i = rand.nextInt(count); //pick a random move
+            Position next = pos.copy();
+            next.makeMove(moves[i]);
+            return new EngineMove(moves[i], next.evaluate(), 0, 0, next);
+        }
+        if (book!=null && limits.maxDepth > 2) { //at the higher levels, if the game is still in the book, play the book's move
+            int move = book.probe(pos, player);
+            if (move>=0) {
+                Position next = pos.copy();
+                next.makeMove(move);
+                return new EngineMove(move, next.evaluate(), 0, 0, next);
+            }
+        }
+        if (search.tableBase!=null) { //if the position is in the endgame tables, play the best move straight from them
+            int move = search.tableBase.bestMove(pos, player);
+            if (move>=0) {
+                Position next = pos.copy();
+                next.makeMove(move);
+                return new EngineMove(move, TableBase.score(search.tableBase.probe(pos, player), player), 0, 0, next);
+            }
+        }
+        long started = System.nanoTime();
+        SearchEvent event = SearchMetrics.recording() ? new SearchEvent() : null;
+        if (event!=null) {
+            event.begin(); }
+        int move;
+        int score;
+        int depth;
+        long nodes;
+        Position next;
+        Search used; //the search whose counts describe this one
+        if (parallelSearch!=null) { //search with several threads sharing one table
+            score = parallelSearch.iterate(pos, player, limits);
+            move = parallelSearch.bestMove;
+            depth = parallelSearch.depthReached;
+            nodes = parallelSearch.nodes;
+            next = parallelSearch.getBestPosition();
+            used = parallelSearch.main;
+        }
+        else if (rootSearch!=null) { //search with the root moves shared out between several threads
+            score = rootSearch.iterate(pos, player, limits);
+            move = rootSearch.bestMove;
+            depth = rootSearch.depthReached;
+            nodes = rootSearch.nodes;
+            next = rootSearch.getBestPosition();
+            used = rootSearch.totals;
+        }
+        else {
+            score = search.iterate(pos, player, limits); //search deeper and deeper, up to the limits, until the time or nodes are up
+            move = search.bestMove;
+            depth = search.depthReached;
+            nodes = search.nodes;
+            next = search.getBestPosition();
+            used = search;
+        }
+        if (next==null) {
+            if (MoveGenerator.generateMoves(pos, player, moves)==0) { //no move was possible
+                return null; }
+            move = moves[0]; //stopped before even the first pass finished, so play the first move found
+            next = pos.copy();
+            next.makeMove(move);
+            score = next.evaluate();
+        }
+        SearchMetrics.get().record(used, player, move, score, nodes, System.nanoTime() - started, event);
+        return new EngineMove(move, score, depth, nodes, next);
+    }
+
+    /**
+     * Start thinking about the user's likely replies to a position, on a background thread, until the user
+     * moves (that is, until chooseMove() is next called). Does nothing unless pondering is on.
+     * @param Position pos the position the user is to move in (this is not changed)
+     */
+    public void ponder(Position pos)
+    {
+        ponder(pos, null);
+    }
+
+    /**
+     * As above, in a game that has been through the positions given.
+     * @param Position pos the position the user is to move in (this is not changed)
+     * @param History history the positions so far, ending with pos (this is not changed), or null for none
+     */
+    public void ponder(Position pos, History history)
+    {
+        if (!pondering || limit==0) { //there is nothing to work out in advance for a random move
+            return; }
+        stopPondering();
+        if (ponderThread==null) {
+            ponderThread = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "ponder");
+                thread.setDaemon(true); //so that pondering doesn't keep the game running after it is closed
+                return thread;
+            });
+        }
+        Position start = pos.copy();
+        History past = history!=null ? history.copy() : null;
+        clearAnswers();
+        SearchLimits limits = getLimits();
+        ponderLimits = limits;
+        pondered = true;
+        ponderTask = ponderThread.submit(() -> ponderOn(start, past, limits));
+    }
+
+    /**
+     * The pondering itself: rank the user's replies, then search the computer's answer to the most likely ones.
+     * @param Position pos the position the user is to move in
+     * @param History history the positions so far, or null for none
+     * @param SearchLimits limits the limits to search the answers within, cancelled by stopPondering()
+     */
+    private synchronized void ponderOn(Position pos, History history, SearchLimits limits)
+    {
+        answerLimits = limits;
+        answerHistory = history;
+        useHistory(history);
+        Search s = parallelSearch!=null ? parallelSearch.main : search; //the search whose table the next move will use
+        int[] moves = new int[Search.MAX_MOVES];
+        int count = MoveGenerator.generateMoves(pos, 2, moves);
+        Position[] replies = new Position[count];
+        int[] scores = new int[count];
+        for (int i = 0; i < count; i++) { //score each reply from the user's point of view: low is likely
+            if (limits.isCancelled()) {
+                return; }
+            replies[i] = pos.copy();
+            replies[i].makeMove(moves[i]);
+            scores[i] = s.search(replies[i], 1, Math.min(limit, PONDER_RANK_DEPTH));
+        }
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i; }
+        Arrays.sort(order, (a, b) -> scores[a] - scores[b]); //the most likely first (the sort is stable, so ties keep their order)
+
+        for (int k = 0; k < Math.min(ponderReplies, count); k++) {
+            Position reply = replies[order[k]];
+            if (limits.isCancelled() || reply.blackWins() || reply.whiteWins()) {
+                return; }
+            int score = s.iterate(reply, 1, limits); //exactly the search chooseMove() would make
+            if (limits.isCancelled()) { //cut short, so not the answer chooseMove() would give
+                return; }
+            Position next = s.getBestPosition();
+            if (next!=null) {
+                answers.put(reply, new EngineMove(s.bestMove, score, s.depthReached, s.nodes, next)); }
+        }
+    }
+
+    /**
+     * Give each search its own copy of the game's history, for it to push the positions it searches onto.
+     * @param History history the positions so far, or null for none
+     */
+    private void useHistory(History history)
+    {
+        History played = history!=null ? history : new History();
+        search.gameHistory = played.copy();
+        if (parallelSearch!=null) {
+            parallelSearch.main.gameHistory = played.copy();
+            for (Search helper : parallelSearch.helpers) {
+                helper.gameHistory = played.copy(); }
+        }
+        if (rootSearch!=null) {
+            rootSearch.gameHistory = played.copy(); }
+    }
+
+    /**
+     * Stop any pondering, and wait for it to finish.
+     */
+    public void stopPondering()
+    {
+        Future<?> task = ponderTask;
+        if (task==null) {
+            return; }
+        ponderLimits.cancel();
+        try {
+            task.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); //for the caller to see; the pondering is cancelled, and soon stops
+            return;
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException("pondering failed", e);
+        }
+        ponderTask = null;
+    }
+
+    /**
+     * Forget the answers worked out while pondering, under the lock that chooseMove() reads them under.
+     */
+    private synchronized void clearAnswers()
+    {
+        answers.clear();
+    }
+
+    /**
+     * Turn pondering on or off.
+     * @param boolean on whether to ponder
+     */
+    public void setPondering(boolean on)
+    {
+        if (!on) {
+            stopPondering(); }
+        pondering = on;
+    }
+
+    /**
+     * @return String how often the user played a reply that had an answer ready
+     */
+    public String ponderReport()
+    {
+        long total = ponderHits + ponderMisses;
+        return String.format("pondering: %d of %d replies answered straight away (%.1f%%)",
+                ponderHits, total, total==0 ? 0.0 : 100.0*ponderHits/total);
+    }
+
+    /**
+     * Stop the search chooseMove() is running, from another thread, by cancelling its limits (see SearchLimits).
+     * chooseMove() then returns the best move of the deepest pass of the search that had finished, or the first
+     * move possible if none had. This does nothing before the search has started (while chooseMove() is
+     * waiting for another caller's search, say) or once it is over: to stop one caller's search whenever the
+     * stop comes, cancel the limits it passed to chooseMove().
+     */
+    public void stop()
+    {
+        SearchLimits limits = running;
+        if (limits!=null) {
+            limits.cancel(); }
+    }
+    
+    /**
+     * The original minimax algorithm, that calls itself recursively to get a value for each possible next state for the computer
+     * (player 1). The game now uses Search, which gives the same results faster, but this is kept to compare it against. 
+     * Goes to a depth specified by a limit set by the difficulty level (see setLimit() below), passing a value up the tree when that depth is reached,
+     * when a state is reached in which one of the players wins, or when a state is reached in which the player cannot make any more moves.
+     * @param Position state the state from which it is being called
+     * @param int depth how far it is going down the search tree
+     * @param int player the player who is making the next (imaginary) move
+     * @param int alpha the value of alpha at the previous state
+     * @param int beta the value of beta at the previous state
+     * @return int a value corresponding to the result reached
+     */
+    public int minimax(Position state, int depth, int player, int alpha, int beta)
+    {
+        int bestScore;
+        if(player==1) {
+            bestScore = -24; } //the worst possible score for the computer (that isn't even possible), when there are 12 white kings on the board and nothing else
+        else {
+            bestScore = 24; } //the worst possible score for the human (that isn't even possible), when there are 12 black kings on the board and nothing else
+        ArrayList<Position> availableStates = MoveGenerator.getPossiblePositions(state, player); //the available states from the given state
+        
+        if (depth==0) { //if this call has come from getAIMove(), start the evaluations afresh
+            rootCount = 0;
+            MoveGenerator.generateMoves(state, player, rootMoves); //the same moves, in the same order, as availableStates
+        }
+
+        if (state.blackWins()) { //give a high value for the computer winning - this is the ultimate goal, after all!
+            return 24;
+        }
+        if (state.whiteWins()) { //give a low value for the human winning - this is the ultimate goal, after all!
+            return -24;
+        }
+        if (availableStates.isEmpty()) { //if no moves can be made, a draw
+            return 0;
+        }
+        if (depth==limit) { //if the depth limit has been hit, evaluate the state reached
+            int value = state.evaluate(); //the same heuristic as evaluateState(), counted from the masks
+            return value;
+        }
+        
+        for (int i=0; i < availableStates.size(); i++) { //going down the search tree, depth-first
+            Position s = availableStates.get(i);
+            if (player==1) {
+                int currentScore = minimax(s, depth + 1, 2, alpha, beta); //get the minimax value for the other player at the next level down
+                bestScore = Math.max(bestScore, currentScore); //if currentScore from minimax evaluation just carried out is better than bestScore, update bestScore
+                alpha = Math.max(currentScore, alpha); //if currentScore from minimax evaluation just carried out is better than alpha, update alpha
+                if (depth==0) { //when we've run through all the recursive calls and reached the top again, store the value found with the move in question
+                    rootScores[rootCount++] = currentScore; }
+            }
+            else if (player==2) {
+                int currentScore = minimax(s, depth + 1, 1, alpha, beta); //get the minimax value for the other player at the next level down
+                bestScore = Math.min(bestScore, currentScore); //if currentScore from minimax evaluation just carried out is better (lower) than bestScore, update bestScore
+                beta = Math.min(currentScore, beta); //if currentScore from minimax evaluation just carried out is better (lower) than beta, update beta
+            }
+            if (alpha>=beta) { //there is no point going any further, so break out of the for loop
+                break;
+            }
+        }
+        return bestScore; //pass the best score found at this depth up a level
+    }
+    
+    /**
+     * Searches through the values minimax found for the root moves and returns the best move, which can be
+     * made on the position minimax was called on with Position.makeMove().
+     * @return int the best move (see the Move class), or -1 if there wasn't one
+     */
+    public int getBestMove()
+    {
+        int maxScore = Integer.MIN_VALUE;
+        int bestMove = -1;
+        
+        for (int i=0; i<rootCount; i++) {
+            if (maxScore < rootScores[i]) {
+                maxScore = rootScores[i];
+                bestMove = rootMoves[i];
+            }
+        }
+        return bestMove;
+    }
+    
+    /**
+     * Set how many threads the computer searches with. With more than one, they all search the same tree,
+     * sharing what they find through one table, of the size the engine was made with (see LazySmp).
+     * @param int the number of threads
+     */
+    public void setThreads(int threads)
+    {
+        setThreads(threads, false);
+    }
+
+    /**
+     * As above, but with the choice of sharing out the root moves between the threads instead, each with a
+     * table of its own (see ParallelSearch). That plays the same moves as one thread would at the same depth,
+     * but runs out of work when there are only a few root moves.
+     * @param int the number of threads
+     * @param boolean splitRoot whether to share out the root moves, rather than search the same tree
+     */
+    public void setThreads(int threads, boolean splitRoot)
+    {
+        stopPondering();
+        synchronized (this) { //not while a move is being chosen with the old threads
+            answers.clear(); //worked out with the old search
+            if (parallelSearch!=null) { //stop the old threads, or they would wait for work for as long as the game runs
+                parallelSearch.shutdown(); }
+            if (rootSearch!=null) {
+                rootSearch.shutdown(); }
+            parallelSearch = null;
+            rootSearch = null;
+            if (threads>1 && splitRoot) {
+                rootSearch = new ParallelSearch(threads, tableBits);
+                rootSearch.tableBase = search.tableBase;
+            }
+            else if (threads>1) {
+                parallelSearch = new LazySmp(threads, tableBits); //a table the size this engine was made with
+                parallelSearch.reproducible = reproducible;
+                parallelSearch.main.tableBase = search.tableBase;
+                for (Search helper : parallelSearch.helpers) {
+                    helper.tableBase = search.tableBase; }
+            }
+        }
+    }
+
+    /**
+     * Set whether the threads set by setThreads() play the same move however they happen to be scheduled (see
+     * LazySmp). In that mode the search goes exactly to the depth limit, ignoring the time budget, so it is
+     * meant for testing and for comparing settings (see Tournament) rather than for play.
+     * @param boolean on whether to search reproducibly
+     */
+    public void setReproducible(boolean on)
+    {
+        stopPondering();
+        synchronized (this) {
+            answers.clear(); //worked out the other way
+            reproducible = on;
+            if (parallelSearch!=null) {
+                parallelSearch.reproducible = on; }
+        }
+    }
+    
+    /**
+     * @return SearchLimits the limits chooseMove() searches within unless it is given others: the depth limit
+     * of the difficulty level, the time budget and the node budget (a new object, to change as needed)
+     */
+    public SearchLimits getLimits()
+    {
+        return new SearchLimits(limit, nodeBudget, timeBudget);
+    }
+
+    /**
+     * Set how many positions the computer may search for each move. Unlike the time budget, this plays the same
+     * on any machine, however fast and however busy. As with the time budget, the first pass always finishes,
+     * and the move played is the best of the deepest pass that finished within the budget.
+     * @param long nodes the number of positions to allow, or 0 for no limit
+     */
+    public void setNodeBudget(long nodes)
+    {
+        stopPondering();
+        clearAnswers(); //worked out with the old budget
+        nodeBudget = nodes;
+    }
+
+    /**
+     * Set how long the computer may think about each move. It will search one move ahead, then two, and so on,
+     * until this time is up or the limit set by setLimit() is reached, and play the best move of the deepest
+     * search it finished.
+     * @param long the number of milliseconds to allow, or 0 to always search to the limit
+     */
+    public void setTimeBudget(long milliseconds)
+    {
+        stopPondering();
+        clearAnswers(); //worked out with the old budget
+        timeBudget = milliseconds;
+    }
+    
+    /**
+     * Set a limit on the number of static evaluations the minimax algorithm can make, based on the difficulty
+     * level selected (0 to 4, as in the Game class's difficulty options). At the top level there is no fixed limit: the
+     * search goes as deep as the time budget allows.
+     * @param int the difficulty level selected.
+     */
+    public void setLimit(int difficulty)
+    {
+        stopPondering();
+        clearAnswers(); //worked out with the old limit
+        if (difficulty==0) {
+            limit = 0; }
+        else if (difficulty==1) {
+            limit = 1; }
+        else if (difficulty==2) {
+            limit = 2; }
+        else if (difficulty==3) {
+            limit = 5; }
+        else {
+            limit = Search.MAX_PLY - 1; }
+    }
+
+    /**
+     * Set the depth limit directly, rather than through a difficulty level, for comparing engines of any
+     * depth (see Tournament).
+     * @param int depth how many moves ahead to look (0 for a random move)
+     */
+    public void setDepth(int depth)
+    {
+        stopPondering();
+        clearAnswers(); //worked out with the old limit
+        limit = Math.min(depth, Search.MAX_PLY - 1);
+    }
+
+    /**
+     * Print the move chosen for a position, without opening the game's window.
+     * @param String[] args the difficulty level (default 3), the position (default the start) and -white if
+     * white is to move
+     */
+    public static void main(String[] args)
+    {
+        Engine engine = new Engine();
+        engine.setLimit(args.length > 0 ? Integer.parseInt(args[0]) : 3);
+        Position pos = args.length > 1 ? Position.fromString(args[1]) : Position.getStartPosition();
+        int player = args.length > 2 && args[2].equals("-white") ? 2 : 1;
+        EngineMove move = engine.chooseMove(pos, player);
+        if (move==null) {
+            System.out.println("no move possible"); }
+        else {
+            System.out.println(move + ", " + move.nodes + " positions searched"); }
+    }
+}
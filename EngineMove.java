@@ -0,0 +1,34 @@
+
+/**
+ * A simple class, with objects intended to hold the move the Engine chose for a position, along with what the
+ * search found out about it.
+ * 
+ * @author Lewis Lloyd 
+ * @version 1
+ */
+public class EngineMove
+{
+    int move; //the move (see the Move class)
+    int score; //the score found for it (from the computer's point of view: high is good for black)
+    int depth; //how many moves ahead the search looked (0 for a move picked at random)
+    long nodes; //the number of positions the search visited
+    Position position; //the position reached by making the move
+    
+    public EngineMove(int move, int score, int depth, long nodes, Position position)
+    {
+        this.move = move;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.position = position;
+    }
+    
+    /**
+     * @return String the move, as Move.describe() writes it, and its score
+     */
+    @Override
+    public String toString()
+    {
+        return Move.describe(move) + " (score " + score + ", depth " + depth + ")";
+    }
+}
@@ -11,6 +11,8 @@ public class Game
 {
     private JFrame frame; //the GUI frame
     Board board; //a board to play the game on!
+    int threads; //the number of threads the computer searches with
+    JCheckBoxMenuItem splitRootItem; //whether those threads share out the root moves, rather than all search the same tree
 
     /**
      * The constructor calls a method to make the frame, creates a new board,
@@ -45,6 +47,29 @@ public class Game
         JMenu fileMenu = new JMenu("File");
         menubar.add(fileMenu);
         
+        JMenuItem moveNowItem = new JMenuItem("Move now");
+        moveNowItem.addActionListener(e -> board.moveNow()); //stop the computer thinking and have it play its best move so far
+        fileMenu.add(moveNowItem);
+        
+        JMenu threadsMenu = new JMenu("Search threads"); //more threads let the computer search deeper in the same time
+        ButtonGroup threadChoices = new ButtonGroup();
+        threads = 1;
+        for (int n = 1; n <= Runtime.getRuntime().availableProcessors(); n *= 2) {
+            int choice = n;
+            JRadioButtonMenuItem item = new JRadioButtonMenuItem(n==1 ? "1 thread" : n + " threads", n==1);
+            item.addActionListener(e -> {
+                threads = choice;
+                board.setThreads(threads, splitRootItem.isSelected());
+            });
+            threadChoices.add(item);
+            threadsMenu.add(item);
+        }
+        threadsMenu.addSeparator();
+        splitRootItem = new JCheckBoxMenuItem("Share out the first moves"); //see ParallelSearch, rather than LazySmp
+        splitRootItem.addActionListener(e -> board.setThreads(threads, splitRootItem.isSelected()));
+        threadsMenu.add(splitRootItem);
+        fileMenu.add(threadsMenu);
+        
         JMenuItem quitItem = new JMenuItem("Quit");
         quitItem.addActionListener(e -> quit());
         fileMenu.add(quitItem);
@@ -90,28 +115,14 @@ public class Game
     }
 
     /**
-     * Start the game and keep it rolling.
+     * Start the game. The computer (black) moves first; from then on each move the user makes hands the turn
+     * back to the computer (see Board.computerTurn()), until somebody wins. The game is made on whichever thread
+     * called the constructor, so the first turn is handed to the Swing event thread, where the board's state
+     * is kept.
      */
     private void play()
     {
-        while (!board.wWins(board.currentState) && !board.bWins(board.currentState)) { //while nobody has won...
-            board.getAIMove(); //get the computer's move first
-            board.moveMade=false; //make sure the system operates on basis that human has yet to make their move
-            while (board.moveMade==false) { //while human has yet to make move...
-                wait(1000); //just wait
-            }
-        }
-        
-        if (board.wWins(board.currentState)) { //if the human has won
-            System.out.println("*******");
-            System.out.println("You won! Now try a harder computer setting...");
-            System.out.println("");
-        }
-        if (board.bWins(board.currentState)) { //if the computer has won
-            System.out.println("*******");
-            System.out.println("The computer won! Ha.");
-            System.out.println("");
-        }
+        SwingUtilities.invokeLater(() -> board.computerTurn());
     }
     
     /**
@@ -145,21 +156,7 @@ public class Game
      */
     public void quit()
     {
+        board.cancelSearch();
         System.exit(0);
     }
-    
-    /**
-     * Wait for a specified number of milliseconds before doing the next thing.
-     * @param  milliseconds  the amount of time to wait 
-     */
-    public void wait(int milliseconds)
-    {
-        try
-        {
-            Thread.sleep(milliseconds);
-        } 
-        catch (Exception e)
-        {
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,589 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+/**
+ * A server for playing many games against the engine at once from one JVM, with no window: clients connect to a
+ * local socket and play by sending lines of text. Each game is a session with its own Engine and position, and
+ * runs on a thread of its own, which spends nearly all of its time waiting for the client's next move. On Java 21
+ * and later these are virtual threads, so thousands of sessions cost little more than their engines' memory;
+ * on earlier versions each session has an ordinary thread.
+ *
+ * The searches themselves don't run on the session threads but in a fixed pool of ordinary threads, one per core
+ * by default, so however many games are going on, the searching never asks for more CPU than that. A session
+ * waiting for its move joins the back of one queue, and each session has at most one search waiting, so the
+ * pool serves the sessions in turn and none can crowd the others out. For each session, the server keeps the
+ * time from each of the client's moves arriving to the reply going back (so including any wait for the pool),
+ * and reports percentiles of it.
+ *
+ * Each of the engine's moves is searched within a SearchLimits of its own: the session's depth and time limits,
+ * and a limit on the positions visited, so that no one request can take more than its share of the CPU however
+ * fast the machine is. The server can set a ceiling on that (setMaxNodes()), which a session can lower but not
+ * raise. If the client goes away, or the session is ended, while a search is waiting or running, the limits are
+ * cancelled, and the search gives the pool back within a few thousand positions.
+ *
+ * The protocol: each request is one line, and each reply is one line starting with OK or ERR. The engine plays
+ * black, so it moves first, as in the game. Moves are written as Move.describe() writes them ("22-18", "25x18"),
+ * and a take can also be written with every square the piece lands on ("1x10x19"), which is needed when two
+ * takes start and end on the same squares but take different pieces.
+ *
+ *   NEW [level [millis [nodes]]]
+ *                          start a game at a difficulty level (0 to 4, default 3), with a time limit and a limit
+ *                          on the positions searched for each of the engine's moves (by default that of Engine
+ *                          and the server's ceiling; 0 for none): OK id move. Level 4 has no depth limit, so
+ *                          it needs a time or node limit.
+ *   MOVE id move           play the client's move: OK id reply, where the reply is the engine's move, or - if
+ *                          the game ended first; either way followed by BLACK, WHITE or DRAW if the game is over
+ *   BOARD id               OK id squares player, the position as Position.toString() writes it, and who is to move
+ *   STATS id               OK id moves n p50 a p90 b p99 c max d, the latencies in milliseconds
+ *   END id                 finish the game, stopping any search it is making: OK id, followed by its STATS
+ *   LIST                   OK and the ids of every session
+ *   QUIT                   close the connection (its sessions are ended)
+ *
+ * Replies about a session come from that session's thread, so a client playing several games over one
+ * connection may get them in a different order from its requests, and should match them up by id.
+ *
+ * Running this class (java GameServer [port] [search threads] [max nodes]) starts a server on the loopback
+ * address.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class GameServer
+{
+    static final int DEFAULT_PORT = 7070; //the port to listen on if none is given
+    static final int TABLE_BITS = 15; //the size of each session's table: 32K entries (512KB), rather than the game's 16MB
+
+    ServerSocket listener; //the socket clients connect to
+    ExecutorService threads; //runs each session, and each connection, on a thread of its own
+    boolean virtual; //whether those are virtual threads
+    ThreadPoolExecutor searchPool; //runs the searches, a fixed number at a time, in the order they were asked for
+    ConcurrentHashMap<Long, Session> sessions; //the games going on, by id
+    AtomicLong nextId; //the id to give the next session
+    volatile long maxNodes; //the most positions any one search may visit, or 0 for no limit
+
+    /**
+     * Constructor for objects of class GameServer. The server listens from the start; call serve() to accept
+     * connections.
+     * @param int port the port to listen on, on the loopback address (0 for any free port)
+     * @param int searchThreads the number of searches to run at once
+     */
+    public GameServer(int port, int searchThreads) throws IOException
+    {
+        listener = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        try { //Java 21 and later: a virtual thread for each task
+            threads = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            virtual = true;
+        }
+        catch (ReflectiveOperationException e) { //before that, an ordinary thread for each
+            threads = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "session");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        searchPool = new ThreadPoolExecutor(searchThreads, searchThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "search");
+                    thread.setDaemon(true); //so that the pool doesn't keep the JVM running after the server closes
+                    return thread;
+                });
+        sessions = new ConcurrentHashMap<>();
+        nextId = new AtomicLong(1);
+    }
+
+    /**
+     * @return int the port the server is listening on
+     */
+    public int getPort()
+    {
+        return listener.getLocalPort();
+    }
+
+    /**
+     * Set the ceiling on the positions any one search may visit, for sessions started from now on.
+     * @param long nodes the ceiling, or 0 for none
+     */
+    public void setMaxNodes(long nodes)
+    {
+        maxNodes = nodes;
+    }
+
+    /**
+     * Accept connections, each on a thread of its own, until the server is closed.
+     */
+    public void serve()
+    {
+        while (!listener.isClosed()) {
+            try {
+                Socket socket = listener.accept();
+                threads.submit(() -> new Connection(socket).run());
+            }
+            catch (IOException e) {
+                if (!listener.isClosed()) {
+                    System.err.println("accept failed: " + e.getMessage()); }
+            }
+        }
+    }
+
+    /**
+     * Stop listening and end every session.
+     */
+    public void close() throws IOException
+    {
+        listener.close();
+        for (Session session : sessions.values()) {
+            session.end(); }
+        threads.shutdown();
+        searchPool.shutdown();
+    }
+
+    /**
+     * One client's connection: reads its requests and hands them to the sessions they are for.
+     */
+    private class Connection implements Runnable
+    {
+        Socket socket; //the connection
+        PrintWriter out; //for writing replies
+        ReentrantLock writing; //held while a reply is written, as several sessions may reply at once (a lock rather than synchronized, which would pin a virtual thread while it waits for the socket)
+        Set<Long> owned; //the sessions started over this connection, to end when it closes
+
+        Connection(Socket socket)
+        {
+            this.socket = socket;
+            writing = new ReentrantLock();
+            owned = ConcurrentHashMap.newKeySet();
+        }
+
+        /**
+         * Send one line to the client.
+         * @param String line the line to send
+         */
+        void send(String line)
+        {
+            writing.lock();
+            try {
+                out.println(line);
+            }
+            finally {
+                writing.unlock();
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            try (Socket s = socket;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8))) {
+                out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), true);
+                String line;
+                while ((line = in.readLine())!=null) {
+                    String[] words = line.trim().split("\\s+");
+                    String command = words[0].toUpperCase();
+                    if (command.equals("QUIT")) {
+                        send("OK");
+                        break;
+                    }
+                    else if (command.equals("LIST")) {
+                        StringBuilder reply = new StringBuilder("OK");
+                        for (long id : sessions.keySet()) {
+                            reply.append(' ').append(id); }
+                        send(reply.toString());
+                    }
+                    else if (command.equals("NEW")) {
+                        Session session = new Session(nextId.getAndIncrement(), this);
+                        sessions.put(session.id, session);
+                        owned.add(session.id);
+                        session.requests.add(new Request(words));
+                        threads.submit(session);
+                    }
+                    else if (command.equals("MOVE") || command.equals("BOARD") || command.equals("STATS")
+                             || command.equals("END")) { //END is passed on here too, as the session may be busy searching
+                        Session session;
+                        try {
+                            session = words.length > 1 ? sessions.get(Long.parseLong(words[1])) : null;
+                        }
+                        catch (NumberFormatException e) {
+                            send("ERR " + words[1] + " bad session id");
+                            continue;
+                        }
+                        if (session==null) {
+                            send("ERR " + (words.length > 1 ? words[1] : "-") + " no such session"); }
+                        else if (command.equals("END")) {
+                            session.end(new Request(words)); }
+                        else {
+                            session.requests.add(new Request(words)); }
+                    }
+                    else if (!command.isEmpty()) {
+                        send("ERR - unknown command " + words[0]); }
+                }
+            }
+            catch (IOException e) { //the client went away: nothing to tell it
+            }
+            finally {
+                for (long id : owned) {
+                    Session session = sessions.get(id);
+                    if (session!=null) {
+                        session.end(); }
+                }
+            }
+        }
+    }
+
+    /**
+     * A request for a session, with the time it arrived.
+     */
+    private static class Request
+    {
+        String[] words; //the words of the request line, or null to tell the session to stop
+        long received; //System.nanoTime() when it arrived
+
+        Request(String[] words)
+        {
+            this.words = words;
+            received = System.nanoTime();
+        }
+    }
+
+    /**
+     * One game, run on a thread of its own: takes the requests for it one at a time, and replies to each.
+     */
+    private class Session implements Runnable
+    {
+        long id; //the session's id
+        Connection client; //where to send replies
+        Engine engine; //the engine playing black
+        Position pos; //the position now
+        int toMove; //the player to move
+        History history; //the positions the game has been through
+        String result; //BLACK, WHITE or DRAW once the game is over, otherwise null
+        long nodes; //the most positions each of the engine's searches may visit, or 0 for no limit
+        volatile SearchLimits searching; //the limits of the engine's latest search, to cancel if the session ends
+        BlockingQueue<Request> requests; //requests waiting to be dealt with
+        volatile boolean ended; //set once the session has been ended
+        long[] latencies; //the time from each of the client's moves arriving to the reply going out, in nanoseconds
+        int replies; //the number of those
+
+        Session(long id, Connection client)
+        {
+            this.id = id;
+            this.client = client;
+            engine = new Engine(TABLE_BITS);
+            engine.setLimit(3);
+            pos = Position.getStartPosition();
+            toMove = 1;
+            history = new History();
+            history.push(pos, 1);
+            nodes = maxNodes;
+            requests = new LinkedBlockingQueue<>();
+            latencies = new long[16];
+        }
+
+        /**
+         * End the session from another thread: stop any search it is making and tell its thread to finish.
+         */
+        void end()
+        {
+            end(new Request(null));
+        }
+
+        /**
+         * As above, with the request for the session's thread to finish on: an END from the client, which it
+         * replies to once the search it was making has stopped, or one with no words, to finish without a reply.
+         * @param Request request the last request for the session
+         */
+        void end(Request request)
+        {
+            ended = true;
+            SearchLimits limits = searching;
+            if (limits!=null) { //stop the search, or stop it before it starts if it's still waiting for the pool
+                limits.cancel(); }
+            requests.add(request);
+        }
+
+        @Override
+        public void run()
+        {
+            try {
+                while (true) {
+                    Request request = requests.take();
+                    if (request.words==null) {
+                        break; }
+                    if (ended && !request.words[0].equalsIgnoreCase("END")) { //sent before the END, but too late
+                        client.send("ERR " + id + " the session has ended");
+                        continue;
+                    }
+                    if (!handle(request)) {
+                        break; }
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            finally {
+                sessions.remove(id);
+                client.owned.remove(id);
+            }
+        }
+
+        /**
+         * Deal with one request.
+         * @param Request request the request
+         * @return boolean false if the session should finish
+         */
+        private boolean handle(Request request) throws InterruptedException
+        {
+            String[] words = request.words;
+            String command = words[0].toUpperCase();
+            if (command.equals("NEW")) {
+                int level = 3;
+                long millis = engine.timeBudget;
+                long asked = 0;
+                try {
+                    if (words.length > 1) {
+                        level = Integer.parseInt(words[1]); }
+                    if (words.length > 2) {
+                        millis = Long.parseLong(words[2]); }
+                    if (words.length > 3) {
+                        asked = Long.parseLong(words[3]); }
+                }
+                catch (NumberFormatException e) {
+                    client.send("ERR " + id + " bad level, time or nodes: " + String.join(" ", words));
+                    return false;
+                }
+                if (asked > 0 && (nodes==0 || asked < nodes)) { //no more than the server allows
+                    nodes = asked; }
+                if (level < 0 || level > 4 || millis < 0 || asked < 0) {
+                    client.send("ERR " + id + " level must be 0 to 4, and time and nodes at least 0: " + String.join(" ", words));
+                    return false;
+                }
+                if (level==4 && millis==0 && nodes==0) { //no limit on depth, time or nodes: the search would never end
+                    client.send("ERR " + id + " level 4 needs a time or node limit");
+                    return false;
+                }
+                engine.setLimit(level);
+                engine.setTimeBudget(millis);
+                return reply(request);
+            }
+            else if (command.equals("MOVE")) {
+                String problem;
+                if (result!=null) {
+                    client.send("ERR " + id + " the game is over: " + result); }
+                else if (words.length < 3) {
+                    client.send("ERR " + id + " not a legal move: (none)"); }
+                else if ((problem = userMove(words[2]))!=null) {
+                    client.send("ERR " + id + " " + problem + ": " + words[2]); }
+                else if (result!=null) { //the client's move ended the game
+                    client.send("OK " + id + " - " + result); }
+                else {
+                    return reply(request); }
+            }
+            else if (command.equals("BOARD")) {
+                client.send("OK " + id + " " + pos + " " + (toMove==1 ? "black" : "white")); }
+            else if (command.equals("STATS")) {
+                client.send("OK " + id + " " + stats()); }
+            else if (command.equals("END")) {
+                client.send("OK " + id + " " + stats());
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Send the engine's move in reply to a request, or if the search failed, say so and finish the session.
+         * @param Request request the request that the move answers
+         * @return boolean false if the session should finish
+         */
+        private boolean reply(Request request) throws InterruptedException
+        {
+            String move = engineMove(request);
+            if (move==null) {
+                client.send("ERR " + id + " search failed");
+                return false;
+            }
+            client.send("OK " + id + " " + move);
+            return true;
+        }
+
+        /**
+         * Make the client's move, if it is legal. A take can be given by its ends ("10x19"), or by every square
+         * the piece lands on ("10x19x28"), and the move made is the one that starts and ends there and, if the
+         * landings are given, takes the pieces jumped between them.
+         * @param String text the move
+         * @return String null if the move was made, otherwise what was wrong with it
+         */
+        private String userMove(String text)
+        {
+            if (toMove!=2) {
+                return "not your move"; }
+            boolean capture = text.indexOf('x')>=0;
+            String[] numbers = text.split(capture ? "x" : "-", -1);
+            int[] squares = new int[numbers.length];
+            try {
+                for (int i = 0; i < numbers.length; i++) {
+                    squares[i] = Integer.parseInt(numbers[i]) - 1; }
+            }
+            catch (NumberFormatException e) {
+                return "not a move"; }
+            if (squares.length < 2 || (!capture && squares.length > 2)) {
+                return "not a move"; }
+            int taken = -1; //the pieces taken, if the landings are given
+            if (squares.length > 2) {
+                taken = 0;
+                for (int i = 1; i < squares.length; i++) {
+                    int jumped = jumpedOver(squares[i - 1], squares[i]);
+                    if (jumped < 0) {
+                        return "not a legal move"; }
+                    taken |= 1 << jumped;
+                }
+            }
+            int[] moves = new int[Search.MAX_MOVES];
+            int count = MoveGenerator.generateMoves(pos, 2, moves);
+            int found = Move.NONE;
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                if (Move.from(move)==squares[0] && Move.to(move)==squares[squares.length - 1]
+                    && Move.isCapture(move)==capture && (taken<0 || Move.captured(move)==taken)) {
+                    if (found!=Move.NONE) { //two takes share their ends
+                        return "ambiguous, give every square the piece lands on"; }
+                    found = move;
+                }
+            }
+            if (found==Move.NONE) {
+                return "not a legal move"; }
+            pos.makeMove(found);
+            toMove = 1;
+            history.push(pos, 1);
+            checkResult();
+            return null;
+        }
+
+        /**
+         * The square a piece jumps over, going from one square to another two rows away.
+         * @param int from the square jumped from
+         * @param int to the square landed on
+         * @return int the square in between, or -1 if the squares aren't a jump apart
+         */
+        private int jumpedOver(int from, int to)
+        {
+            if (from < 0 || from > 31 || to < 0 || to > 31) {
+                return -1; }
+            int rows = Position.row(to) - Position.row(from);
+            int cols = Position.col(to) - Position.col(from);
+            if (Math.abs(rows)!=2 || Math.abs(cols)!=2) {
+                return -1; }
+            return Position.square(Position.row(from) + rows/2, Position.col(from) + cols/2);
+        }
+
+        /**
+         * Have the engine make its move, searching in the pool, and record how long the client waited for it.
+         * @param Request request the request that the move answers
+         * @return String the move and, if the game is now over, the result, or null if the search failed
+         */
+        private String engineMove(Request request) throws InterruptedException
+        {
+            EngineMove move;
+            SearchLimits limits = engine.getLimits();
+            limits.maxNodes = nodes;
+            searching = limits;
+            try {
+                move = searchPool.submit(() -> ended ? null : engine.chooseMove(pos, 1, history, limits)).get();
+            }
+            catch (ExecutionException e) { //a bug in the search: log it, and leave the other sessions be
+                System.err.println("search failed in session " + id + ": " + e.getCause());
+                return null;
+            }
+            String reply;
+            if (move==null) { //no move possible (or the session was ended while it waited)
+                reply = "-";
+                if (!ended) {
+                    result = "DRAW"; }
+            }
+            else {
+                pos = move.position;
+                toMove = 2;
+                history.push(pos, 2);
+                checkResult();
+                reply = Move.describe(move.move);
+            }
+            if (replies==latencies.length) {
+                latencies = Arrays.copyOf(latencies, 2*replies); }
+            latencies[replies++] = System.nanoTime() - request.received;
+            return result==null ? reply : reply + " " + result;
+        }
+
+        /**
+         * See whether the game is over: one side has no pieces, or the side to move has no moves, or the game is
+         * going nowhere (both draws, see History).
+         */
+        private void checkResult()
+        {
+            if (pos.blackWins()) {
+                result = "BLACK"; }
+            else if (pos.whiteWins()) {
+                result = "WHITE"; }
+            else if (!MoveGenerator.hasMoves(pos, toMove) || history.isDraw()) {
+                result = "DRAW"; }
+        }
+
+        /**
+         * @return String the number of replies and percentiles of their latencies, in milliseconds
+         */
+        private String stats()
+        {
+            long[] sorted = Arrays.copyOf(latencies, replies);
+            Arrays.sort(sorted);
+            return String.format("moves %d p50 %.1f p90 %.1f p99 %.1f max %.1f", replies, percentile(sorted, 50),
+                    percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 100));
+        }
+    }
+
+    /**
+     * The nearest-rank percentile of some sorted times.
+     * @param long[] sorted the times, in nanoseconds, in order
+     * @param int p the percentile
+     * @return double the time below which p percent of them fall, in milliseconds (0 if there are none)
+     */
+    static double percentile(long[] sorted, int p)
+    {
+        if (sorted.length==0) {
+            return 0; }
+        int rank = (int) Math.ceil(p/100.0*sorted.length);
+        return sorted[Math.max(rank, 1) - 1]/1e6;
+    }
+
+    /**
+     * Start a server and serve until the JVM is stopped.
+     * @param String[] args the port (default 7070), the number of searches to run at once (default one per core)
+     * and the most positions any one search may visit (default no limit)
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int searchThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        GameServer server = new GameServer(port, searchThreads);
+        if (args.length > 2) {
+            server.setMaxNodes(Long.parseLong(args[2])); }
+        System.out.printf("listening on %s:%d, %d search threads, sessions on %s threads%n",
+                server.listener.getInetAddress().getHostAddress(), server.getPort(), searchThreads,
+                server.virtual ? "virtual" : "ordinary");
+        server.serve();
+    }
+}
@@ -0,0 +1,163 @@
+import java.util.Arrays;
+/**
+ * The positions a game has been through, most recent last, kept as a stack of Zobrist keys so that repeated
+ * positions can be spotted, along with the number of moves since the last that made progress (a man moving or
+ * a piece being taken). Neither kind of move can ever be taken back, so no position from before one can come
+ * up again, and only the positions since the last need to be looked through.
+ *
+ * The game is a draw once a position comes up for the third time with the same player to move, or once
+ * NO_PROGRESS moves in a row have made no progress (the forty-move rule: forty moves each). The search also
+ * pushes each position it visits onto the game's stack, and there the first repetition is enough: if going
+ * round the circle was good for one player the first time, it will be again, so the line can be scored as a
+ * draw at once, rather than searched round and round until the depth runs out.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class History
+{
+    static final int NO_PROGRESS = 80; //the moves (by either player) without progress after which the game is a draw
+    static final int REPEATS = 3; //the number of times a position can come up before the game is a draw
+
+    long[] keys; //the key of each position, with the player to move in it (see Zobrist.key())
+    int[] men; //the squares with men on them in each position
+    int[] pieces; //the number of pieces in each position
+    int[] quiet; //the number of moves before each position since the last that made progress
+    int size; //the number of positions
+
+    /**
+     * Constructor for objects of class History, with no positions in it.
+     */
+    public History()
+    {
+        keys = new long[128];
+        men = new int[128];
+        pieces = new int[128];
+        quiet = new int[128];
+    }
+
+    /**
+     * Add the position a move has reached.
+     * @param Position pos the position
+     * @param int player the player to move in it
+     */
+    public void push(Position pos, int player)
+    {
+        if (size==keys.length) {
+            keys = Arrays.copyOf(keys, 2*size);
+            men = Arrays.copyOf(men, 2*size);
+            pieces = Arrays.copyOf(pieces, 2*size);
+            quiet = Arrays.copyOf(quiet, 2*size);
+        }
+        int menNow = (pos.black | pos.white) & ~pos.kings;
+        int piecesNow = Integer.bitCount(pos.black | pos.white);
+        keys[size] = Zobrist.key(pos, player);
+        men[size] = menNow;
+        pieces[size] = piecesNow;
+        if (size > 0 && men[size - 1]==menNow && pieces[size - 1]==piecesNow) { //only kings moved, and nothing was taken
+            quiet[size] = quiet[size - 1] + 1; }
+        else {
+            quiet[size] = 0; }
+        size++;
+    }
+
+    /**
+     * Take the latest position off again.
+     */
+    public void pop()
+    {
+        size--;
+    }
+
+    /**
+     * Take positions off until only a given number are left.
+     * @param int size the number to leave
+     */
+    public void truncate(int size)
+    {
+        this.size = size;
+    }
+
+    /**
+     * @return long the key of the latest position, or 0 if there are none
+     */
+    public long top()
+    {
+        return size==0 ? 0 : keys[size - 1];
+    }
+
+    /**
+     * @return int the number of times the latest position has come up, including this time
+     */
+    public int occurrences()
+    {
+        if (size==0) {
+            return 0; }
+        long key = keys[size - 1];
+        int times = 1;
+        int oldest = size - 1 - quiet[size - 1]; //the first position since progress was last made
+        for (int i = size - 3; i >= oldest; i -= 2) { //the same player to move every other position
+            if (keys[i]==key) {
+                times++; }
+        }
+        return times;
+    }
+
+    /**
+     * @return boolean whether the latest position has come up before, for the search
+     */
+    public boolean repeated()
+    {
+        return size > 0 && quiet[size - 1]>=4 && occurrences() > 1; //a circle takes at least two moves each
+    }
+
+    /**
+     * @return boolean whether NO_PROGRESS moves in a row have made no progress
+     */
+    public boolean noProgress()
+    {
+        return size > 0 && quiet[size - 1]>=NO_PROGRESS;
+    }
+
+    /**
+     * @return boolean whether the game is a draw, by repetition or for lack of progress
+     */
+    public boolean isDraw()
+    {
+        return occurrences()>=REPEATS || noProgress();
+    }
+
+    /**
+     * Whether another history ends with the same positions as this one, back to the last move that made
+     * progress, so that a search from the latest position would find the same draws in both.
+     * @param History other the other history
+     * @return boolean whether the latest positions match
+     */
+    public boolean sameRecent(History other)
+    {
+        if (size==0 || other.size==0) {
+            return size==other.size; }
+        int count = quiet[size - 1];
+        if (other.quiet[other.size - 1]!=count) {
+            return false; }
+        for (int i = 1; i <= count + 1; i++) {
+            if (keys[size - i]!=other.keys[other.size - i]) {
+                return false; }
+        }
+        return true;
+    }
+
+    /**
+     * @return History a copy, to change without changing this one
+     */
+    public History copy()
+    {
+        History copy = new History();
+        copy.keys = Arrays.copyOf(keys, keys.length);
+        copy.men = Arrays.copyOf(men, men.length);
+        copy.pieces = Arrays.copyOf(pieces, pieces.length);
+        copy.quiet = Arrays.copyOf(quiet, quiet.length);
+        copy.size = size;
+        return copy;
+    }
+}
@@ -0,0 +1,33 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+/**
+ * A Java Flight Recorder event for each pass of Search.iterate() that finishes, so that a recording shows how
+ * the time for a move was spread over the depths. The event's duration is the time the pass took. Like all
+ * JFR events, it costs next to nothing unless a recording is running.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+@Name("draughts.Iteration")
+@Label("Search Iteration")
+@Category("Draughts")
+@Description("One pass of the iterative deepening search, to a single depth")
+@StackTrace(false)
+public class IterationEvent extends Event
+{
+    @Label("Depth")
+    int depth; //the depth searched to
+
+    @Label("Nodes")
+    long nodes; //the positions visited in this pass
+
+    @Label("Score")
+    int score; //the score of the best move (high is good for black)
+
+    @Label("Best Move")
+    String move; //the best move, as Move.describe() writes it
+}
@@ -0,0 +1,189 @@
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+/**
+ * A parallel search for deep limits, in the "Lazy SMP" style. Splitting the root moves (see ParallelSearch)
+ * runs out of work once there are fewer root moves than threads, which is common when a take is forced. Here
+ * instead every thread searches the whole tree, with all of them sharing one TranspositionTable. The main
+ * thread's result is the one played; the helper threads, which start their deepening at different depths and
+ * so quickly drift onto different parts of the tree, fill the table with results that the main thread then
+ * finds ready-made, at any depth of the tree rather than just the root.
+ *
+ * Which results get into the table first depends on how the threads happen to be scheduled, so normally the
+ * move chosen can vary from run to run. With reproducible set, every thread only uses table entries searched to
+ * exactly the depth needed, the root moves are kept in the order generated, and the time budget is ignored, so
+ * the result is exactly that of plain minimax to the depth given (followed by the same quiescence search, see
+ * Search), however many threads there are.
+ *
+ * Running this class (java LazySmp depth threads) prints the time taken to reach a given depth with 1, 2, 4...
+ * threads, in reproducible mode, and checks that the moves agree.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class LazySmp
+{
+    int threads; //the number of threads to search with, including the main one
+    TranspositionTable table; //the table shared by all of the threads
+    Search main; //the search whose result is played
+    Search[] helpers; //the helper threads' searches
+    ExecutorService pool; //the helper threads
+    boolean reproducible; //whether to search so that the result doesn't depend on the timing of the threads
+    int bestMove; //the best move found at the root, or -1 if there wasn't one
+    int bestScore; //the score found for that move
+    int depthReached; //the depth of the deepest pass the main thread finished
+    long nodes; //the number of positions visited in the last search, over all threads
+
+    /**
+     * Constructor for objects of class LazySmp
+     * @param int threads the number of threads to search with
+     * @param int tableBits the size of the shared table, as a power of two
+     */
+    public LazySmp(int threads, int tableBits)
+    {
+        this.threads = threads;
+        table = new TranspositionTable(tableBits);
+        main = new Search(table);
+        helpers = new Search[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new Search(table);
+        }
+        pool = Executors.newFixedThreadPool(Math.max(1, threads - 1), r -> {
+            Thread thread = new Thread(r, "lazy-smp-helper");
+            thread.setDaemon(true); //so that the helpers don't keep the game running after it is closed
+            return thread;
+        });
+        bestMove = -1;
+    }
+
+    /**
+     * Search a position, deepening until the budget runs out or the depth limit is reached, with the helper
+     * threads searching alongside the main one.
+     * @param Position root the position to search from (this is not changed)
+     * @param int player the player to move
+     * @param int maxDepth the deepest to go (in reproducible mode, exactly this deep)
+     * @param long budget the number of milliseconds to spend, or 0 for no limit (ignored in reproducible mode)
+     * @return int the score of the best move
+     */
+    public int iterate(Position root, int player, int maxDepth, long budget)
+    {
+        return iterate(root, player, new SearchLimits(maxDepth, 0, budget));
+    }
+
+    /**
+     * As above, but within a set of limits (see SearchLimits). The node limit counts only the main thread's
+     * nodes, and cancelling stops the main thread, which then stops the helpers.
+     * @param Position root the position to search from (this is not changed)
+     * @param int player the player to move
+     * @param SearchLimits limits the limits on the search (in reproducible mode, only the depth is used)
+     * @return int the score of the best move
+     */
+    public int iterate(Position root, int player, SearchLimits limits)
+    {
+        int maxDepth = limits.maxDepth;
+        main.strictDepth = reproducible;
+        ArrayList<Future<?>> running = new ArrayList<>();
+        for (int i = 0; i < helpers.length; i++) {
+            Search helper = helpers[i];
+            helper.strictDepth = reproducible;
+            helper.abort = false;
+            int firstDepth = 1 + (i + 1) % 2; //half of the helpers start a depth ahead of the main thread
+            running.add(pool.submit(() -> helper.iterate(root, player, firstDepth, Search.MAX_PLY - 1, 0)));
+        }
+
+        if (reproducible) {
+            main.search(root, player, maxDepth); }
+        else {
+            main.iterate(root, player, limits); }
+
+        nodes = main.nodes;
+        for (int i = 0; i < helpers.length; i++) { //the main thread is done, so stop the helpers
+            helpers[i].abort = true;
+        }
+        for (int i = 0; i < helpers.length; i++) {
+            try {
+                running.get(i).get();
+            }
+            catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            nodes += helpers[i].nodes;
+        }
+        bestMove = main.bestMove;
+        bestScore = main.bestScore;
+        depthReached = main.depthReached;
+        return bestScore;
+    }
+
+    /**
+     * @return Position the position reached by playing the best move found, or null if there wasn't one
+     */
+    public Position getBestPosition()
+    {
+        return main.getBestPosition();
+    }
+
+    /**
+     * Stop the helper threads, once this search is no longer wanted.
+     */
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * Time reproducible searches to a given depth with 1, 2, 4... threads, up to the number given, and print
+     * the speedup over one thread.
+     * @param String[] args the depth (default 12) and the most threads to try (default all of them)
+     */
+    public static void main(String[] args)
+    {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+        int most = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        ArrayList<Position> positions = new ArrayList<>(); //the start, and a few positions from random games
+        positions.add(Position.getStartPosition());
+        Random rand = new Random(1);
+        while (positions.size() < 6) {
+            Position pos = Position.getStartPosition();
+            int player = 1;
+            for (int ply = 0; ply < 8 + 6*positions.size(); ply++) {
+                ArrayList<Position> next = MoveGenerator.getPossiblePositions(pos, player);
+                if (next.isEmpty()) {
+                    break; }
+                pos = next.get(rand.nextInt(next.size()));
+                player = 3 - player;
+            }
+            if (!pos.blackWins() && !pos.whiteWins() && MoveGenerator.hasMoves(pos, 1)) {
+                positions.add(pos); }
+        }
+
+        long single = 0;
+        int[] firstMoves = new int[positions.size()];
+        for (int threads = 1; threads <= Math.max(1, most); threads *= 2) {
+            LazySmp smp = new LazySmp(threads, 20);
+            smp.reproducible = true;
+            for (Position pos : positions) { //warm up the JIT
+                smp.iterate(pos, 1, Math.min(depth, 6), 0); }
+            boolean same = true;
+            long total = 0;
+            for (int i = 0; i < positions.size(); i++) {
+                smp.table.clear();
+                long start = System.nanoTime();
+                smp.iterate(positions.get(i), 1, depth, 0);
+                total += System.nanoTime() - start;
+                if (threads==1) {
+                    firstMoves[i] = smp.bestMove; }
+                else if (firstMoves[i]!=smp.bestMove) {
+                    same = false; }
+            }
+            if (threads==1) {
+                single = total; }
+            System.out.printf("%2d threads: %8.1fms  speedup %5.2f  same moves: %s%n",
+                    threads, total/1e6, (double) single/total, same ? "yes" : "NO");
+            smp.shutdown();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+
+/**
+ * A move packed into a single int, so that the moves found at each depth of a search fit in one int array
+ * and a move can be compared, stored in the table or passed around as one number. The square moved from is in
+ * bits 0-4, the square moved to in bits 5-9, whether the piece is crowned on the way in bit 10, and the pieces
+ * taken in bits 11-28.
+ *
+ * A piece can only be jumped over if there is a square beyond it to land on, so a piece on the edge of the
+ * board can never be taken. That leaves 18 squares that can, and on each of rows 1 to 6 they are the three
+ * squares away from the edge, which sit next to each other in the 32-bit masks: bits 5-10 (rows 1 and 2),
+ * 13-18 (rows 3 and 4) and 21-26 (rows 5 and 6). The mask of pieces taken is squeezed into 18 bits by shifting
+ * those three runs of six together.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class Move
+{
+    static final int NONE = -1; //no move
+    static final int CROWNED = 1 << 10; //the bit set if the piece is crowned
+    static final int TAKEABLE = 0x07E7E7E0; //the squares a piece can be taken on: not on the edge of the board
+
+    /**
+     * Pack a move into an int.
+     * @param int from the square moved from
+     * @param int to the square moved to
+     * @param boolean crowned whether the piece is crowned on the way
+     * @param int captured the mask of pieces taken (all on TAKEABLE squares)
+     * @return int the move
+     */
+    public static int make(int from, int to, boolean crowned, int captured)
+    {
+        return from | (to << 5) | (crowned ? CROWNED : 0)
+                | ((captured >>> 5) & 0x3F) << 11 | ((captured >>> 7) & 0xFC0) << 11 | ((captured >>> 9) & 0x3F000) << 11;
+    }
+
+    /**
+     * @param int move a move
+     * @return int the square it leaves
+     */
+    public static int from(int move)
+    {
+        return move & 31;
+    }
+
+    /**
+     * @param int move a move
+     * @return int the square it arrives on
+     */
+    public static int to(int move)
+    {
+        return (move >>> 5) & 31;
+    }
+
+    /**
+     * @param int move a move
+     * @return boolean whether the piece is crowned on the way
+     */
+    public static boolean crowned(int move)
+    {
+        return (move & CROWNED)!=0;
+    }
+
+    /**
+     * @param int move a move
+     * @return boolean whether it takes anything
+     */
+    public static boolean isCapture(int move)
+    {
+        return (move >>> 11)!=0;
+    }
+
+    /**
+     * Unpack the pieces a move takes.
+     * @param int move a move
+     * @return int the mask of the squares whose pieces it takes
+     */
+    public static int captured(int move)
+    {
+        int taken = move >>> 11;
+        return (taken & 0x3F) << 5 | (taken & 0xFC0) << 7 | (taken & 0x3F000) << 9;
+    }
+
+    /**
+     * Write a move in the usual draughts notation, with the squares numbered 1 to 32 from the top left:
+     * "9-13" for a step, "9x18" for a jump (giving where the piece ends up, however many pieces it takes).
+     * @param int move the move
+     * @return String the move written out
+     */
+    public static String describe(int move)
+    {
+        return (from(move) + 1) + (isCapture(move) ? "x" : "-") + (to(move) + 1);
+    }
+}
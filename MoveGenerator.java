@@ -0,0 +1,380 @@
+import java.util.ArrayList;
+/**
+ * Move generation and game-over tests for the packed Position representation. Rather than checking each
+ * of the 64 cells of a 2D array, whole sets of pieces are moved at once by shifting their masks: moving one
+ * row down the board is a shift left by 3, 4 or 5 bits depending on the row and direction, and moving up is
+ * the matching shift right. The edge masks below stop pieces wrapping round from one side of the board to the
+ * other. The rules are exactly those of the jump/step methods in the Rules class, including the order in which
+ * successor states are found.
+ *
+ * Moving the pieces one at a time, as generating a list of moves has to, is done with tables instead, built
+ * once when the class is loaded. For each type of piece (black man, white man, black king, white king), each
+ * direction and each square, STEP_TO gives the square the piece would step to and JUMP_TO the square it would
+ * land on after a jump, as masks, or 0 if the edge of the board is in the way or that type of piece can't go
+ * that way. So finding a piece's moves is a few lookups and ANDs, with no need to check the player, whether the
+ * piece is a king or where the edges are.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class MoveGenerator
+{
+    //the four diagonal directions, in the order the Rules class checks them
+    static final int DOWN_RIGHT = 0; //row+1, column+1
+    static final int DOWN_LEFT = 1;  //row+1, column-1
+    static final int UP_RIGHT = 2;   //row-1, column+1
+    static final int UP_LEFT = 3;    //row-1, column-1
+
+    static final int EVEN_ROWS = 0x0F0F0F0F; //squares on rows 0, 2, 4 and 6
+    static final int ODD_ROWS = 0xF0F0F0F0;  //squares on rows 1, 3, 5 and 7
+    static final int RIGHT_EDGE = 0x08080808; //the squares in column 7 (all on even rows)
+    static final int LEFT_EDGE = 0x10101010;  //the squares in column 0 (all on odd rows)
+    static final int BLACK_KINGS_ROW = 0xF0000000; //row 7, where black men become kings
+    static final int WHITE_KINGS_ROW = 0x0000000F; //row 0, where white men become kings
+
+    //the tables, indexed by (type << 7) | (dir << 5) | square, where type is 0 for a black man, 1 a white man,
+    //2 a black king and 3 a white king (one less than the numbers used in the 2D array form)
+    static final int[] STEP_TO = new int[512]; //the mask of the square a step goes to, or 0 if there isn't one
+    static final int[] JUMP_TO = new int[512]; //the mask of the square a jump lands on, or 0 (the square jumped is the STEP_TO one)
+    static final int[] CROWNING = {BLACK_KINGS_ROW, WHITE_KINGS_ROW, 0, 0}; //for each type, where it is crowned
+
+    static {
+        for (int type = 0; type < 4; type++) {
+            for (int dir = 0; dir < 4; dir++) {
+                int di = dir==DOWN_RIGHT || dir==DOWN_LEFT ? 1 : -1;
+                int dj = dir==DOWN_RIGHT || dir==UP_RIGHT ? 1 : -1;
+                boolean allowed = type>=2 || (type==0) == (di > 0); //kings go either way, black men down, white men up
+                for (int s = 0; s < 32; s++) {
+                    int step = Position.square(Position.row(s) + di, Position.col(s) + dj);
+                    int jump = Position.square(Position.row(s) + 2*di, Position.col(s) + 2*dj);
+                    if (allowed && step>=0) {
+                        STEP_TO[(type << 7) | (dir << 5) | s] = 1 << step; }
+                    if (allowed && jump>=0) {
+                        JUMP_TO[(type << 7) | (dir << 5) | s] = 1 << jump; }
+                }
+            }
+        }
+    }
+
+    /**
+     * Move every piece in a mask one square in a given direction. Pieces that would go off the board are dropped.
+     * @param int bits the mask of pieces to move
+     * @param int dir the direction to move them in
+     * @return int the mask of squares they land on
+     */
+    public static int shift(int bits, int dir)
+    {
+        switch (dir) {
+            case DOWN_RIGHT:
+                return ((bits & EVEN_ROWS & ~RIGHT_EDGE) << 5) | ((bits & ODD_ROWS) << 4);
+            case DOWN_LEFT:
+                return ((bits & EVEN_ROWS) << 4) | ((bits & ODD_ROWS & ~LEFT_EDGE) << 3);
+            case UP_RIGHT:
+                return ((bits & EVEN_ROWS & ~RIGHT_EDGE) >>> 3) | ((bits & ODD_ROWS) >>> 4);
+            default:
+                return ((bits & EVEN_ROWS) >>> 4) | ((bits & ODD_ROWS & ~LEFT_EDGE) >>> 5);
+        }
+    }
+
+    /**
+     * Work out the direction of a move from the change in row and column.
+     * @param int di the change in row
+     * @param int dj the change in column
+     * @return int the direction
+     */
+    public static int direction(int di, int dj)
+    {
+        if (di > 0) {
+            return dj > 0 ? DOWN_RIGHT : DOWN_LEFT; }
+        else {
+            return dj > 0 ? UP_RIGHT : UP_LEFT; }
+    }
+
+    /**
+     * The type of a player's piece on a square, for looking things up in the tables.
+     * @param Position pos the position in question
+     * @param int player the player the piece belongs to
+     * @param int s the square it is on
+     * @return int 0 for a black man, 1 a white man, 2 a black king, 3 a white king
+     */
+    public static int type(Position pos, int player, int s)
+    {
+        return player - 1 + ((pos.kings >>> s) & 1)*2;
+    }
+
+    /**
+     * The pieces of a player that may move in a given direction: kings can go anywhere, but black men only
+     * go down the board and white men only go up.
+     * @param Position pos the position in question
+     * @param int player the player in question
+     * @param int dir the direction
+     * @return int the mask of pieces allowed to move that way
+     */
+    public static int movers(Position pos, int player, int dir)
+    {
+        int own = pos.pieces(player);
+        boolean forward = (player==1) == (dir==DOWN_RIGHT || dir==DOWN_LEFT);
+        if (forward) {
+            return own; }
+        else {
+            return own & pos.kings; }
+    }
+
+    /**
+     * A method to determine whether a given player can make a take anywhere in a position. All of the player's
+     * pieces are checked in each direction at once.
+     * @param Position pos the position in question
+     * @param int player the player in question
+     * @return boolean whether or not a take is possible
+     */
+    public static boolean hasCapture(Position pos, int player)
+    {
+        int opponent = pos.pieces(3 - player);
+        int empty = pos.empty();
+        for (int dir = 0; dir < 4; dir++) {
+            if ((shift(shift(movers(pos, player, dir), dir) & opponent, dir) & empty)!=0) {
+                return true; }
+        }
+        return false;
+    }
+
+    /**
+     * A method to determine whether a given player can make a take with the piece on a given square.
+     * @param Position pos the position in question
+     * @param int player the player in question
+     * @param int s the square the piece is on
+     * @return boolean whether or not a take is possible
+     */
+    public static boolean hasCaptureFrom(Position pos, int player, int s)
+    {
+        for (int dir = 0; dir < 4; dir++) {
+            if (jumpPoss(pos, player, s, dir)) {
+                return true; }
+        }
+        return false;
+    }
+
+    /**
+     * Whether a given player can make any move at all. If not, the game is a draw.
+     * @param Position pos the position in question
+     * @param int player the player in question
+     * @return boolean whether or not a move is possible
+     */
+    public static boolean hasMoves(Position pos, int player)
+    {
+        int empty = pos.empty();
+        for (int dir = 0; dir < 4; dir++) {
+            if ((shift(movers(pos, player, dir), dir) & empty)!=0) {
+                return true; }
+        }
+        return hasCapture(pos, player);
+    }
+
+    /**
+     * Method to see whether a jump is possible from a given square in a given direction.
+     * @param Position pos the position the jump would be made from
+     * @param int player the player who would be making the jump
+     * @param int s the square the piece is jumping from
+     * @param int dir the direction of the jump
+     * @return boolean whether or not the jump is possible
+     */
+    public static boolean jumpPoss(Position pos, int player, int s, int dir)
+    {
+        if (s<0) {
+            return false; }
+        int i = (type(pos, player, s) << 7) | (dir << 5) | s;
+        return (pos.pieces(player) & (1 << s))!=0 && (STEP_TO[i] & pos.pieces(3 - player))!=0
+                && (JUMP_TO[i] & pos.empty())!=0;
+    }
+
+    /**
+     * Method to see whether a step is possible from a given square in a given direction.
+     * @param Position pos the position the step would be made from
+     * @param int player the player who would be making the step
+     * @param int s the square the piece is stepping from
+     * @param int dir the direction of the step
+     * @return boolean whether or not the step is possible
+     */
+    public static boolean stepPoss(Position pos, int player, int s, int dir)
+    {
+        if (s<0) {
+            return false; }
+        return (pos.pieces(player) & (1 << s))!=0 && (STEP_TO[(type(pos, player, s) << 7) | (dir << 5) | s] & pos.empty())!=0;
+    }
+
+    /**
+     * Method to make a jump, then return the resulting position as a new position. A man that lands on
+     * the far row is crowned straight away.
+     * @param Position pos the position the jump is happening from
+     * @param int player the player making the jump
+     * @param int s the square the piece is jumping from
+     * @param int dir the direction of the jump
+     * @return Position the resulting position
+     */
+    public static Position makeJump(Position pos, int player, int s, int dir)
+    {
+        int i = (type(pos, player, s) << 7) | (dir << 5) | s;
+        Position next = pos.copy();
+        next.makeMove(encode(pos, player, s, JUMP_TO[i], STEP_TO[i]));
+        return next;
+    }
+
+    /**
+     * Method to make a step, then return the resulting position as a new position.
+     * @param Position pos the position the step is being made from
+     * @param int player the player making the step
+     * @param int s the square the piece is stepping from
+     * @param int dir the direction of the step
+     * @return Position the resulting position
+     */
+    public static Position makeStep(Position pos, int player, int s, int dir)
+    {
+        Position next = pos.copy();
+        next.makeMove(encode(pos, player, s, STEP_TO[(type(pos, player, s) << 7) | (dir << 5) | s], 0));
+        return next;
+    }
+
+    /**
+     * Pack a single jump or step into a Move, crowning the piece if it is a man that has reached the far row.
+     * @param Position pos the position the move is made from
+     * @param int player the player who owns the piece
+     * @param int s the square it leaves
+     * @param int to the mask of the square it arrives on
+     * @param int captured the mask of the piece it jumps over, or 0 for a step
+     * @return int the move
+     */
+    private static int encode(Position pos, int player, int s, int to, int captured)
+    {
+        boolean crowned = (to & CROWNING[type(pos, player, s)])!=0;
+        return Move.make(s, Integer.numberOfTrailingZeros(to), crowned, captured);
+    }
+
+    /**
+     * Write every legal move for a player into an array, rather than building a new position for each one.
+     * Each move is packed into one int (see the Move class), so a search can keep one array of ints for each
+     * depth and reuse it at every node. Moves come out in the same order as getPossiblePositions(), and can be
+     * made and taken back with Position.makeMove() and unmakeMove().
+     * @param Position pos the position to find moves in (this is not changed)
+     * @param int player the player in question
+     * @param int[] moves the array to write the moves into
+     * @return int the number of moves written
+     */
+    public static int generateMoves(Position pos, int player, int[] moves)
+    {
+        int count = 0;
+        int own = pos.pieces(player);
+        int empty = pos.empty();
+        if (hasCapture(pos, player)) {
+            int opponent = pos.pieces(3 - player);
+            while (own!=0) {
+                int s = Integer.numberOfTrailingZeros(own);
+                count = addJumpMoves(type(pos, player, s), s, s, false, 0, opponent, empty | (1 << s), moves, count);
+                own &= own - 1;
+            }
+        }
+        else {
+            while (own!=0) { //for each of the player's pieces, in square order
+                int s = Integer.numberOfTrailingZeros(own);
+                int type = type(pos, player, s);
+                for (int i = (type << 7) | s; i < ((type + 1) << 7); i += 32) { //each direction in turn
+                    int to = STEP_TO[i] & empty;
+                    if (to!=0) {
+                        moves[count++] = Move.make(s, Integer.numberOfTrailingZeros(to), (to & CROWNING[type])!=0, 0); }
+                }
+                own &= own - 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Follow every chain of jumps from a square without changing the position: pieces already taken are
+     * removed from the opponent's mask and their squares treated as empty, just as makeJump() would leave them.
+     * Calls itself when the piece can jump again from where it lands.
+     * @param int type the type of the jumping piece (see type()), a king if it has been crowned on the way
+     * @param int origin the square the chain started from
+     * @param int s the square the jumping piece is on now
+     * @param boolean crowned whether the piece has been crowned on the way
+     * @param int taken the mask of pieces taken so far
+     * @param int opponent the opponent's pieces still on the board
+     * @param int empty the empty squares, with the jumping piece lifted off the board
+     * @param int[] moves the array to write finished moves into
+     * @param int count the number of moves written so far
+     * @return int the number of moves written after this chain
+     */
+    private static int addJumpMoves(int type, int origin, int s, boolean crowned, int taken,
+                                    int opponent, int empty, int[] moves, int count)
+    {
+        int here = 1 << s;
+        for (int i = (type << 7) | s; i < ((type + 1) << 7); i += 32) { //each direction in turn
+            int over = STEP_TO[i] & opponent;
+            int to = JUMP_TO[i] & empty;
+            if (over!=0 && to!=0) {
+                int landed = Integer.numberOfTrailingZeros(to);
+                boolean nowCrowned = crowned || (to & CROWNING[type])!=0;
+                int nextOpponent = opponent & ~over;
+                int nextEmpty = (empty | here | over) & ~to;
+                int before = count;
+                count = addJumpMoves(nowCrowned ? type | 2 : type, origin, landed, nowCrowned, taken | over,
+                                     nextOpponent, nextEmpty, moves, count);
+                if (count==before) { //no further jump from here, so the chain ends
+                    moves[count++] = Move.make(origin, landed, nowCrowned, taken | over); }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A method to get the possible next positions for a player. If a take is possible then only takes are
+     * allowed, and a piece that can take again must do so.
+     * @param Position pos the position you want to get the next positions for
+     * @param int player the player in question
+     * @return ArrayList<Position> an ArrayList of the possible next positions
+     */
+    public static ArrayList<Position> getPossiblePositions(Position pos, int player)
+    {
+        ArrayList<Position> possible = new ArrayList<>();
+        if (hasCapture(pos, player)) {
+            int own = pos.pieces(player);
+            while (own!=0) {
+                int s = Integer.numberOfTrailingZeros(own);
+                addJumps(pos, player, s, possible);
+                own &= own - 1;
+            }
+        }
+        else {
+            int own = pos.pieces(player);
+            while (own!=0) { //for each of the player's pieces, in square order
+                int s = Integer.numberOfTrailingZeros(own);
+                for (int dir = 0; dir < 4; dir++) {
+                    if (stepPoss(pos, player, s, dir)) {
+                        possible.add(makeStep(pos, player, s, dir)); }
+                }
+                own &= own - 1;
+            }
+        }
+        return possible;
+    }
+
+    /**
+     * Add the positions reached by every chain of jumps the piece on a given square can make. Calls itself
+     * when a piece that has just jumped can jump again.
+     * @param Position pos the position to jump from
+     * @param int player the player in question
+     * @param int s the square the jumping piece is on
+     * @param ArrayList<Position> possible the list to add positions to
+     */
+    private static void addJumps(Position pos, int player, int s, ArrayList<Position> possible)
+    {
+        for (int dir = 0; dir < 4; dir++) {
+            if (jumpPoss(pos, player, s, dir)) {
+                Position next = makeJump(pos, player, s, dir);
+                int landed = Integer.numberOfTrailingZeros(JUMP_TO[(type(pos, player, s) << 7) | (dir << 5) | s]);
+                if (hasCaptureFrom(next, player, landed)) {
+                    addJumps(next, player, landed, possible); }
+                else {
+                    possible.add(next); }
+            }
+        }
+    }
+}
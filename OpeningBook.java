@@ -0,0 +1,230 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+/**
+ * An opening book: the computer's move in each of the positions it can reach in the first few moves of a game,
+ * worked out in advance with a deep search. Every game starts from the same position, so without a book the
+ * engine would search the same few positions again at the start of every game; with one, Engine plays the
+ * book's move at once while the game is still in it, and only starts searching once the user has left it.
+ *
+ * The book is built offline (java OpeningBook build [plies] [depth] [width] [file]) by playing the game out from
+ * the start: for the computer, the move a search to the given depth chooses, and for the user, the few replies
+ * a shallower search likes best, each followed in turn, down to the given number of plies (moves by either
+ * player). So the book covers the user's likely replies, not just one line.
+ *
+ * The file is a run of entries sorted by key, each the Zobrist key of a position with the computer to move
+ * (8 bytes) and the move to play (4 bytes, see the Move class). It is mapped into memory rather than read, and
+ * looking a position up is a binary search. A move found is checked against the moves possible in the
+ * position, so a key shared by two positions can't lead to an illegal move.
+ *
+ * The game looks for the book in the file "opening.book", or the one named by -Ddraughts.book, and plays
+ * without it if there is none.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class OpeningBook
+{
+    static final int ENTRY = 12; //the bytes in each entry: the key, then the move
+    static final String FILE = System.getProperty("draughts.book", "opening.book"); //where the game looks for the book
+    static final int REPLY_DEPTH = 6; //how deep to search the user's replies, to choose which of them to follow
+
+    private static OpeningBook shared; //the book the game uses, opened the first time it's asked for
+    private static boolean looked; //whether it has been looked for
+
+    ByteBuffer entries; //the entries, sorted by key
+    int count; //the number of entries
+
+    /**
+     * Constructor for objects of class OpeningBook: open a book.
+     * @param File file the book's file
+     */
+    public OpeningBook(File file) throws IOException
+    {
+        if (file.length() % ENTRY!=0) {
+            throw new IOException(file + " is not a whole number of entries long"); }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            mapped.load();
+            entries = mapped;
+        }
+        count = (int) (file.length()/ENTRY);
+    }
+
+    /**
+     * Get the book the game uses, opening it the first time.
+     * @return OpeningBook the book in FILE, or null if there isn't one
+     */
+    public static synchronized OpeningBook get()
+    {
+        if (!looked) {
+            looked = true;
+            File file = new File(FILE);
+            if (file.isFile()) {
+                try {
+                    shared = new OpeningBook(file);
+                }
+                catch (IOException e) {
+                    System.err.println("couldn't open the opening book " + file + ": " + e.getMessage());
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Look up the move to play in a position.
+     * @param Position pos the position
+     * @param int player the player to move
+     * @return int the move, or -1 if the position isn't in the book
+     */
+    public int probe(Position pos, int player)
+    {
+        long key = Zobrist.key(pos, player);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long found = entries.getLong(middle*ENTRY);
+            if (found < key) {
+                low = middle + 1; }
+            else if (found > key) {
+                high = middle - 1; }
+            else {
+                int move = entries.getInt(middle*ENTRY + 8);
+                int[] moves = new int[Search.MAX_MOVES];
+                int n = MoveGenerator.generateMoves(pos, player, moves);
+                for (int i = 0; i < n; i++) {
+                    if (moves[i]==move) {
+                        return move; }
+                }
+                return -1; //another position with the same key
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Build a book by playing the game out from the start.
+     * @param int plies how many moves (by either player) the book goes
+     * @param int depth how deep to search for the computer's moves
+     * @param int width how many of the user's replies to follow from each position (0 for all of them)
+     * @param File file the file to write the book to
+     */
+    public static void build(int plies, int depth, int width, File file) throws IOException
+    {
+        HashMap<Long, Integer> book = new HashMap<>();
+        Search search = new Search(new TranspositionTable(22));
+        search.strictDepth = true; //so that the book's moves don't depend on the order it happened to be built in
+        long start = System.nanoTime();
+        add(Position.getStartPosition(), 1, plies, depth, width, search, book);
+
+        Long[] keys = book.keySet().toArray(new Long[0]);
+        Arrays.sort(keys);
+        ByteBuffer out = ByteBuffer.allocate(keys.length*ENTRY);
+        for (Long key : keys) {
+            out.putLong(key);
+            out.putInt(book.get(key));
+        }
+        out.flip();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (out.hasRemaining()) {
+                channel.write(out); }
+        }
+        System.out.printf("%d positions in %.1fs, written to %s%n", keys.length, (System.nanoTime() - start)/1e9, file);
+    }
+
+    /**
+     * Add the positions below one to the book, for build().
+     * @param Position pos the position (this is not changed)
+     * @param int player the player to move
+     * @param int plies how many more moves the book goes
+     * @param int depth how deep to search for the computer's moves
+     * @param int width how many of the user's replies to follow (0 for all of them)
+     * @param Search search the search to use
+     * @param HashMap<Long, Integer> book the moves found so far, by key
+     */
+    private static void add(Position pos, int player, int plies, int depth, int width, Search search,
+                            HashMap<Long, Integer> book)
+    {
+        if (plies==0 || pos.blackWins() || pos.whiteWins()) {
+            return; }
+        if (player==1) {
+            long key = Zobrist.key(pos, 1);
+            if (book.containsKey(key)) { //reached already by another order of moves
+                return; }
+            search.search(pos, 1, depth);
+            if (search.bestMove<0) {
+                return; }
+            book.put(key, search.bestMove);
+            Position next = pos.copy();
+            next.makeMove(search.bestMove);
+            add(next, 2, plies - 1, depth, width, search, book);
+            return;
+        }
+        int[] moves = new int[Search.MAX_MOVES];
+        int count = MoveGenerator.generateMoves(pos, 2, moves);
+        ArrayList<Position> replies = new ArrayList<>();
+        int[] scores = new int[count];
+        for (int i = 0; i < count; i++) {
+            Position next = pos.copy();
+            next.makeMove(moves[i]);
+            replies.add(next);
+            scores[i] = width==0 ? 0 : search.search(next, 1, REPLY_DEPTH);
+        }
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i; }
+        Arrays.sort(order, (a, b) -> Integer.compare(scores[a], scores[b])); //the user's best first (the lowest score), ties in the order generated
+        for (int i = 0; i < count && (width==0 || i < width); i++) {
+            add(replies.get(order[i]), 1, plies - 1, depth, width, search, book); }
+    }
+
+    /**
+     * Build a book (java OpeningBook build [plies] [depth] [width] [file]), or print one line of play through
+     * it (java OpeningBook show [file]), with the user always making the first reply that stays in the book.
+     * @param String[] args see above; the defaults are 12 plies, depth 14, 4 replies and FILE
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length >= 1 && args[0].equals("build")) {
+            int plies = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+            int depth = args.length > 2 ? Integer.parseInt(args[2]) : 14;
+            int width = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+            build(plies, depth, width, new File(args.length > 4 ? args[4] : FILE));
+        }
+        else if (args.length >= 1 && args[0].equals("show")) {
+            OpeningBook book = new OpeningBook(new File(args.length > 1 ? args[1] : FILE));
+            Position pos = Position.getStartPosition();
+            StringBuilder line = new StringBuilder(book.count + " positions; ");
+            int[] moves = new int[Search.MAX_MOVES];
+            for (int move = book.probe(pos, 1); move>=0; move = book.probe(pos, 1)) {
+                pos.makeMove(move);
+                line.append(Move.describe(move)).append(' ');
+                int count = MoveGenerator.generateMoves(pos, 2, moves);
+                int reply = 0;
+                while (reply < count - 1) {
+                    Position next = pos.copy();
+                    next.makeMove(moves[reply]);
+                    if (book.probe(next, 1)>=0) {
+                        break; }
+                    reply++;
+                }
+                if (count==0) {
+                    break; }
+                pos.makeMove(moves[reply]);
+                line.append(Move.describe(moves[reply])).append(' ');
+            }
+            System.out.println(line.toString().trim());
+        }
+        else {
+            System.out.println("usage: java OpeningBook build [plies] [depth] [width] [file] | show [file]"); }
+    }
+}
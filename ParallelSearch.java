@@ -0,0 +1,406 @@
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+/**
+ * A search that shares out the moves at the root between the threads of a ForkJoinPool, so that several cores
+ * can work on the computer's move at once. Each thread has its own Search (and table), and searches the
+ * position after one root move at a time. The best score found so far is shared between the threads through
+ * an AtomicInteger, and each new root move is searched with alpha set just below it, so a move that can't beat
+ * the best so far is dropped quickly but a move that equals it still gets its exact score. The move chosen is
+ * then the first, in the order the moves were generated, with the best score: the same move a serial Search
+ * with strictDepth set picks at the same depth.
+ *
+ * Engine uses this instead of LazySmp when setThreads() is asked to split the root moves. It searches within a
+ * SearchLimits as Search does, except that the node limit is shared out between the root moves as they start,
+ * so the threads together may go over it by a little.
+ *
+ * Running this class (java ParallelSearch depth threads) times both searches on a set of positions and prints
+ * the speedup.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class ParallelSearch
+{
+    int threads; //the number of threads to search with
+    ForkJoinPool pool; //the threads
+    ThreadLocal<Search> workers; //each thread's own Search
+    int bestMove; //the best move found at the root, or -1 if there wasn't one
+    int bestScore; //the score found for that move
+    int depthReached; //the depth of the deepest pass iterate() finished
+    long nodes; //the number of positions visited in the last search, over all threads
+    Position root; //the position searched from
+    int[] order; //the root moves (as indices into the generated list) in the order to hand them out in the next pass
+    TableBase tableBase; //the endgame tables for the threads to probe, or null
+    History gameHistory; //the positions the game has been through, for the threads to spot repetitions with
+    History rootHistory; //those, ending with the root, for the search under way
+    ConcurrentLinkedQueue<Search> all; //every thread's Search, to add up their counts
+    Search totals; //never searched with: holds the counts of all the threads' searches, for SearchMetrics
+
+    /**
+     * Constructor for objects of class ParallelSearch
+     * @param int threads the number of threads to search with
+     */
+    public ParallelSearch(int threads)
+    {
+        this(threads, 18);
+    }
+
+    /**
+     * Constructor for objects of class ParallelSearch, with a given size of table for each thread.
+     * @param int threads the number of threads to search with
+     * @param int tableBits the size of each thread's table, as a power of two
+     */
+    public ParallelSearch(int threads, int tableBits)
+    {
+        this.threads = threads;
+        pool = new ForkJoinPool(threads); //its threads are daemon threads, so they don't keep the game running
+        all = new ConcurrentLinkedQueue<>();
+        workers = ThreadLocal.withInitial(() -> {
+            Search search = new Search(new TranspositionTable(tableBits));
+            search.strictDepth = true; //so that every thread scores a move exactly as a serial search would
+            all.add(search);
+            return search;
+        });
+        gameHistory = new History();
+        totals = new Search(null);
+        bestMove = -1;
+    }
+
+    /**
+     * Search a position to a given depth, and record the best move for the player to move.
+     * @param Position root the position to search from (this is not changed)
+     * @param int player the player to move
+     * @param int limit how many moves ahead to look
+     * @return int the score of the best move
+     */
+    public int search(Position root, int player, int limit)
+    {
+        start(root, player);
+        pass(player, limit, 0, 0, null);
+        depthReached = limit;
+        count();
+        return bestScore;
+    }
+
+    /**
+     * Search a position to depth 1, 2, 3 and so on until either the time budget runs out or the depth limit is
+     * reached, as Search.iterate() does. Each pass hands out the root moves best first, going by the scores of
+     * the pass before.
+     * @param Position root the position to search from (this is not changed)
+     * @param int player the player to move
+     * @param int maxDepth the deepest to go, however much time is left
+     * @param long budget the number of milliseconds to spend, or 0 for no limit
+     * @return int the score of the best move
+     */
+    public int iterate(Position root, int player, int maxDepth, long budget)
+    {
+        return iterate(root, player, new SearchLimits(maxDepth, 0, budget));
+    }
+
+    /**
+     * As above, but within a set of limits (see SearchLimits): like the time, the node limit lets the first pass
+     * finish, and cancelling stops every thread at once.
+     * @param Position root the position to search from (this is not changed)
+     * @param int player the player to move
+     * @param SearchLimits limits the limits on the search
+     * @return int the score of the best move
+     */
+    public int iterate(Position root, int player, SearchLimits limits)
+    {
+        start(root, player);
+        depthReached = 0;
+        long stopAt = limits.maxMillis > 0 ? System.currentTimeMillis() + limits.maxMillis : 0;
+        int doneMove = -1;
+        int doneScore = 0;
+        for (int depth = 1; depth <= Math.min(limits.maxDepth, Search.MAX_PLY - 1); depth++) {
+            if (limits.cancelled) {
+                break; }
+            long passStart = System.nanoTime();
+            long nodesBefore = nodes;
+            boolean finished = pass(player, depth, depthReached > 0 ? stopAt : 0,
+                    depthReached > 0 ? limits.maxNodes : 0, limits); //the first pass always finishes, unless cancelled
+            if (!finished) {
+                break; }
+            totals.passNodes[depth] = nodes - nodesBefore;
+            totals.passNanos[depth] = System.nanoTime() - passStart;
+            doneMove = bestMove;
+            doneScore = bestScore;
+            depthReached = depth;
+            if (doneMove<0 || Math.abs(doneScore)==24) {
+                break; }
+        }
+        bestMove = doneMove;
+        bestScore = doneScore;
+        count();
+        return doneScore;
+    }
+
+    /**
+     * Get ready for a new search: clear the counts, and add the root to the game's positions if it isn't there.
+     * @param Position root the position to search from (this is not changed)
+     * @param int player the player to move
+     */
+    private void start(Position root, int player)
+    {
+        this.root = root.copy();
+        order = null;
+        nodes = 0;
+        for (Search search : all) { //no thread is searching between searches
+            search.newSearch(); }
+        totals.newSearch();
+        rootHistory = gameHistory.copy();
+        if (rootHistory.top()!=Zobrist.key(root, player)) {
+            rootHistory.push(root, player); }
+    }
+
+    /**
+     * Add up the threads' counts into totals, for SearchMetrics.
+     */
+    private void count()
+    {
+        totals.nodes = nodes;
+        totals.depthReached = depthReached;
+        for (Search search : all) {
+            totals.leaves += search.leaves;
+            totals.expanded += search.expanded;
+            totals.cutoffs += search.cutoffs;
+            totals.tableProbes += search.tableProbes;
+            totals.tableHits += search.tableHits;
+            totals.quiescenceNodes += search.quiescenceNodes;
+        }
+    }
+
+    /**
+     * One search of the root position to a given depth, split between the threads.
+     * @param int player the player to move
+     * @param int limit how many moves ahead to look
+     * @param long deadline the time by which to stop, or 0 for none
+     * @param long maxNodes the most nodes the whole search may visit, or 0 for no limit
+     * @param SearchLimits limits the limits whose cancelling stops the threads, or null
+     * @return boolean true if the search finished, false if it was stopped
+     */
+    private boolean pass(int player, int limit, long deadline, long maxNodes, SearchLimits limits)
+    {
+        bestMove = -1;
+        if (root.blackWins()) { //nothing to search: the same results as Search gives
+            bestScore = 24;
+            return true;
+        }
+        if (root.whiteWins()) {
+            bestScore = -24;
+            return true;
+        }
+        int[] moves = new int[Search.MAX_MOVES];
+        int count = MoveGenerator.generateMoves(root, player, moves);
+        if (count==0) {
+            bestScore = 0;
+            return true;
+        }
+        if (order==null || order.length!=count) {
+            order = new int[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i; }
+        }
+
+        AtomicInteger shared = new AtomicInteger(player==1 ? Integer.MIN_VALUE : Integer.MAX_VALUE); //the best exact score so far
+        int[] scores = new int[count];
+        long[] counts = new long[count];
+        boolean[] stopped = new boolean[1];
+        AtomicLong spent = new AtomicLong(nodes); //the nodes visited so far, over all the passes
+        ArrayList<RootMove> tasks = new ArrayList<>();
+        for (int i : order) {
+            tasks.add(new RootMove(i, moves[i], player, limit, deadline, shared, scores, counts, stopped, maxNodes,
+                                   spent, limits));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute()
+            {
+                invokeAll(tasks);
+            }
+        });
+        for (long n : counts) {
+            nodes += n; }
+        if (stopped[0]) {
+            return false; }
+
+        int best = 0;
+        for (int i = 1; i < count; i++) { //the first move with the best score, as a serial search would pick
+            if (player==1 ? scores[i] > scores[best] : scores[i] < scores[best]) {
+                best = i; }
+        }
+        bestMove = moves[best];
+        bestScore = scores[best];
+
+        final int[] byScore = scores;
+        Integer[] next = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            next[i] = i; }
+        java.util.Arrays.sort(next, (a, b) -> player==1 ? byScore[b] - byScore[a] : byScore[a] - byScore[b]);
+        for (int i = 0; i < count; i++) {
+            order[i] = next[i]; }
+        return true;
+    }
+
+    /**
+     * @return Position the position reached by playing the best move found, or null if there wasn't one
+     */
+    public Position getBestPosition()
+    {
+        if (bestMove<0) {
+            return null; }
+        Position next = root.copy();
+        next.makeMove(bestMove);
+        return next;
+    }
+
+    /**
+     * Stop the pool's threads, once this search is no longer wanted.
+     */
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * The search of one root move, run by whichever thread of the pool picks it up.
+     */
+    private class RootMove extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        int index; //the move's place in the generated list
+        int move; //the move
+        int player; //the player making it
+        int limit; //the depth limit
+        long deadline; //the time to stop by, or 0
+        AtomicInteger shared; //the best exact score found so far by any thread
+        int[] scores; //where to put the score
+        long[] counts; //where to put the number of nodes visited
+        boolean[] stopped; //stopped[0] is set if any thread runs out of time or nodes, or is cancelled
+        long maxNodes; //the most nodes the whole search may visit, or 0 for no limit
+        AtomicLong spent; //the nodes visited so far by all the threads
+        SearchLimits limits; //the limits whose cancelling stops the search, or null
+
+        RootMove(int index, int move, int player, int limit, long deadline, AtomicInteger shared, int[] scores,
+                 long[] counts, boolean[] stopped, long maxNodes, AtomicLong spent, SearchLimits limits)
+        {
+            this.index = index;
+            this.move = move;
+            this.player = player;
+            this.limit = limit;
+            this.deadline = deadline;
+            this.shared = shared;
+            this.scores = scores;
+            this.counts = counts;
+            this.stopped = stopped;
+            this.maxNodes = maxNodes;
+            this.spent = spent;
+            this.limits = limits;
+        }
+
+        @Override
+        protected void compute()
+        {
+            Search search = workers.get();
+            long left = maxNodes - spent.get();
+            if (stopped[0] || (maxNodes > 0 && left<=0)) { //the pass won't count, so don't start on this move
+                stopped[0] = true;
+                return;
+            }
+            search.deadline = deadline;
+            search.limits = limits;
+            search.nodeLimit = maxNodes > 0 ? search.nodes + left : 0;
+            search.tableBase = tableBase;
+            Position next = root.copy();
+            next.makeMove(move);
+            search.gameHistory = rootHistory.copy();
+            search.gameHistory.push(next, 3 - player);
+            long before = search.nodes;
+            int score;
+            if (player==1) {
+                int alpha = shared.get();
+                if (alpha!=Integer.MIN_VALUE) {
+                    alpha--; } //one below the best so far, so that a move which only equals it is still scored exactly
+                score = search.searchBelow(next, 2, 1, limit, alpha, Integer.MAX_VALUE);
+                if (!search.stopped && score > alpha) { //only an exact score can become the new bound
+                    shared.accumulateAndGet(score, Math::max); }
+            }
+            else {
+                int beta = shared.get();
+                if (beta!=Integer.MAX_VALUE) {
+                    beta++; }
+                score = search.searchBelow(next, 1, 1, limit, Integer.MIN_VALUE, beta);
+                if (!search.stopped && score < beta) {
+                    shared.accumulateAndGet(score, Math::min); }
+            }
+            scores[index] = score;
+            counts[index] = search.nodes - before;
+            spent.addAndGet(counts[index]);
+            if (search.stopped) {
+                stopped[0] = true; }
+            search.deadline = 0;
+            search.limits = null;
+            search.nodeLimit = 0;
+        }
+    }
+
+    /**
+     * Time a serial search and a parallel search of the same positions to the same depth, check that they pick
+     * the same moves, and print the speedup.
+     * @param String[] args the depth (default 10) and the number of threads (default all of them)
+     */
+    public static void main(String[] args)
+    {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        ArrayList<Position> positions = new ArrayList<>(); //the start, and a few positions from random games
+        positions.add(Position.getStartPosition());
+        Random rand = new Random(1);
+        while (positions.size() < 6) {
+            Position pos = Position.getStartPosition();
+            int player = 1;
+            for (int ply = 0; ply < 8 + 6*positions.size(); ply++) {
+                ArrayList<Position> next = MoveGenerator.getPossiblePositions(pos, player);
+                if (next.isEmpty()) {
+                    break; }
+                pos = next.get(rand.nextInt(next.size()));
+                player = 3 - player;
+            }
+            if (!pos.blackWins() && !pos.whiteWins() && MoveGenerator.hasMoves(pos, 1)) {
+                positions.add(pos); }
+        }
+
+        ParallelSearch parallel = new ParallelSearch(threads);
+        long serialTotal = 0;
+        long parallelTotal = 0;
+        for (int round = 0; round < 2; round++) { //the first round just warms up the JIT
+            serialTotal = 0;
+            parallelTotal = 0;
+            for (Position pos : positions) {
+                Search serial = new Search(new TranspositionTable(18));
+                serial.strictDepth = true;
+                long start = System.nanoTime();
+                serial.search(pos, 1, depth);
+                long serialTime = System.nanoTime() - start;
+                start = System.nanoTime();
+                parallel.search(pos, 1, depth);
+                long parallelTime = System.nanoTime() - start;
+                serialTotal += serialTime;
+                parallelTotal += parallelTime;
+                if (round==1) {
+                    System.out.printf("serial %8.1fms  parallel %8.1fms  speedup %5.2f  same move: %s%n",
+                            serialTime/1e6, parallelTime/1e6, (double) serialTime/parallelTime,
+                            serial.bestMove==parallel.bestMove ? "yes" : "NO");
+                }
+            }
+        }
+        System.out.printf("depth %d, %d threads: overall speedup %.2f%n", depth, threads, (double) serialTotal/parallelTotal);
+    }
+}
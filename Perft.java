@@ -0,0 +1,228 @@
+import java.util.ArrayList;
+/**
+ * A tool for checking that move generation is right, and measuring how fast it is, by counting the positions
+ * reachable in exactly N moves ("perft"). The count can be made with any of the three ways of generating moves:
+ * making and taking back moves on one Position (as Search does), building a list of new Positions for each
+ * node (MoveGenerator.getPossiblePositions()), or the original 2D array rules (Rules.getPossibleStates(),
+ * which uses getJumpStatesState() and getJumpStatesPosition()). Since all three should find the same moves, any
+ * difference in the counts points to a bug. The count for each root move is printed separately ("divide"), so a
+ * difference can be followed down to the move that causes it.
+ *
+ * Subtotals can optionally be kept in a table by position key and depth, so that positions reached by
+ * different orders of moves are only counted once.
+ *
+ * Usage: java Perft depth [-pos squares] [-white] [-cache bits] [-backend fast|list|legacy|all]
+ * where squares is a position written as by Position.toString(), -white means white is to move (black is the
+ * default), and -backend all runs all three and compares them root move by root move.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class Perft
+{
+    int[][] moves; //moves[depth] holds the moves found at that depth
+    long[] cacheKeys; //the key (mixed with the depth) of the subtotal in each slot of the cache, or null for no cache
+    long[] cacheCounts; //the subtotal in each slot
+    int cacheMask; //the number of slots minus one
+    long cacheHits; //the number of subtotals found in the cache
+
+    /**
+     * Constructor for objects of class Perft
+     * @param int cacheBits the size of the cache of subtotals, as a power of two, or 0 for no cache
+     */
+    public Perft(int cacheBits)
+    {
+        moves = new int[Search.MAX_PLY][Search.MAX_MOVES];
+        if (cacheBits > 0) {
+            cacheKeys = new long[1 << cacheBits];
+            cacheCounts = new long[1 << cacheBits];
+            cacheMask = (1 << cacheBits) - 1;
+        }
+    }
+
+    /**
+     * Count the positions reached in exactly depth moves, making and taking back moves on one position.
+     * @param Position pos the position to count from (changed during the count, but left as it was)
+     * @param int player the player to move
+     * @param int depth the number of moves
+     * @return long the number of positions
+     */
+    public long perft(Position pos, int player, int depth)
+    {
+        if (depth==0) {
+            return 1; }
+        int[] m = moves[depth];
+        int count = MoveGenerator.generateMoves(pos, player, m);
+        if (depth==1) { //no need to make the moves just to count them
+            return count; }
+
+        long key = 0;
+        if (cacheKeys!=null) {
+            key = Zobrist.key(pos, player) ^ (depth * 0x9E3779B97F4A7C15L); //the same position at another depth is a different count
+            int slot = (int) key & cacheMask;
+            if (cacheKeys[slot]==key) {
+                cacheHits++;
+                return cacheCounts[slot];
+            }
+        }
+
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            int capturedKings = pos.makeMove(m[i]);
+            total += perft(pos, 3 - player, depth - 1);
+            pos.unmakeMove(m[i], capturedKings);
+        }
+        if (cacheKeys!=null) {
+            int slot = (int) key & cacheMask;
+            cacheKeys[slot] = key;
+            cacheCounts[slot] = total;
+        }
+        return total;
+    }
+
+    /**
+     * As perft(), but building a new Position for every move with MoveGenerator.getPossiblePositions().
+     * @param Position pos the position to count from
+     * @param int player the player to move
+     * @param int depth the number of moves
+     * @return long the number of positions
+     */
+    public long perftList(Position pos, int player, int depth)
+    {
+        if (depth==0) {
+            return 1; }
+        ArrayList<Position> next = MoveGenerator.getPossiblePositions(pos, player);
+        if (depth==1) {
+            return next.size(); }
+        long total = 0;
+        for (Position p : next) {
+            total += perftList(p, 3 - player, depth - 1);
+        }
+        return total;
+    }
+
+    /**
+     * As perft(), but with the original 2D array rules: Rules.getPossibleStates().
+     * @param int[][] state the state to count from
+     * @param int player the player to move
+     * @param int depth the number of moves
+     * @return long the number of positions
+     */
+    public long perftLegacy(int[][] state, int player, int depth)
+    {
+        if (depth==0) {
+            return 1; }
+        ArrayList<int[][]> next = Rules.getPossibleStates(state, player);
+        if (depth==1) {
+            return next.size(); }
+        long total = 0;
+        for (int[][] s : next) {
+            total += perftLegacy(s, 3 - player, depth - 1);
+        }
+        return total;
+    }
+
+    /**
+     * Count the positions below each root move with one of the backends.
+     * @param Position root the position to count from
+     * @param int player the player to move
+     * @param int depth the number of moves (at least 1)
+     * @param String backend "fast", "list" or "legacy"
+     * @return long[] the count for each root move, in the order the moves are generated
+     */
+    public long[] divide(Position root, int player, int depth, String backend)
+    {
+        int[] m = new int[Search.MAX_MOVES];
+        int count = MoveGenerator.generateMoves(root, player, m);
+        long[] counts = new long[count];
+        if (backend.equals("fast")) {
+            Position pos = root.copy();
+            for (int i = 0; i < count; i++) {
+                int capturedKings = pos.makeMove(m[i]);
+                counts[i] = perft(pos, 3 - player, depth - 1);
+                pos.unmakeMove(m[i], capturedKings);
+            }
+        }
+        else if (backend.equals("list")) {
+            ArrayList<Position> next = MoveGenerator.getPossiblePositions(root, player);
+            counts = new long[next.size()];
+            for (int i = 0; i < next.size(); i++) {
+                counts[i] = perftList(next.get(i), 3 - player, depth - 1); }
+        }
+        else if (backend.equals("legacy")) {
+            ArrayList<int[][]> next = Rules.getPossibleStates(root.toArray(), player);
+            counts = new long[next.size()];
+            for (int i = 0; i < next.size(); i++) {
+                counts[i] = perftLegacy(next.get(i), 3 - player, depth - 1); }
+        }
+        else {
+            throw new IllegalArgumentException("unknown backend: " + backend); }
+        return counts;
+    }
+
+    /**
+     * Run perft from the command line, printing the count for each root move, the total and the speed.
+     * @param String[] args see the class comment
+     */
+    public static void main(String[] args)
+    {
+        if (args.length==0) {
+            System.out.println("usage: java Perft depth [-pos squares] [-white] [-cache bits] [-backend fast|list|legacy|all]");
+            return;
+        }
+        int depth = Integer.parseInt(args[0]);
+        Position root = Position.getStartPosition();
+        int player = 1;
+        int cacheBits = 0;
+        String backend = "fast";
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-pos")) {
+                root = Position.fromString(args[++i]); }
+            else if (args[i].equals("-white")) {
+                player = 2; }
+            else if (args[i].equals("-cache")) {
+                cacheBits = Integer.parseInt(args[++i]); }
+            else if (args[i].equals("-backend")) {
+                backend = args[++i]; }
+            else {
+                throw new IllegalArgumentException("unknown option: " + args[i]); }
+        }
+
+        Perft perft = new Perft(cacheBits);
+        int[] m = new int[Search.MAX_MOVES];
+        int count = MoveGenerator.generateMoves(root, player, m);
+        String[] backends = backend.equals("all") ? new String[]{"fast", "list", "legacy"} : new String[]{backend};
+        long[][] results = new long[backends.length][];
+        for (int b = 0; b < backends.length; b++) {
+            long start = System.nanoTime();
+            results[b] = perft.divide(root, player, Math.max(depth, 1), backends[b]);
+            long time = System.nanoTime() - start;
+            long total = 0;
+            for (long n : results[b]) {
+                total += n; }
+            if (depth==0) {
+                total = 1; }
+            System.out.printf("%s: depth %d, %d positions in %.1fms (%.2f million a second)%s%n",
+                    backends[b], depth, total, time/1e6, total/(time/1e3),
+                    backends[b].equals("fast") && cacheBits > 0 ? ", " + perft.cacheHits + " cache hits" : "");
+        }
+
+        boolean agree = true;
+        for (int i = 0; i < count; i++) {
+            StringBuilder line = new StringBuilder(String.format("%-8s", Move.describe(m[i])));
+            for (int b = 0; b < backends.length; b++) {
+                long n = i < results[b].length ? results[b][i] : -1;
+                line.append(String.format(" %14d", n));
+                if (n!=results[0][i]) {
+                    agree = false; }
+            }
+            System.out.println(line);
+        }
+        for (long[] r : results) {
+            if (r.length!=count) {
+                agree = false; }
+        }
+        if (backends.length > 1) {
+            System.out.println(agree ? "all backends agree" : "BACKENDS DISAGREE"); }
+    }
+}
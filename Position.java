@@ -0,0 +1,407 @@
+
+/**
+ * A packed version of a game state. Only the 32 dark squares of the board can ever hold a piece, so rather than
+ * an 8x8 2D array we give each dark square one bit of an int. Square s sits in row s/4, and the squares are
+ * numbered left to right, top to bottom, so they come out in the same order as a row-by-row scan of the 2D array.
+ * Three masks then describe the whole board: one for black pieces, one for white pieces, and one for kings of
+ * either colour. The int[][] form is still available through fromArray() and toArray(), for the GUI.
+ *
+ * The number of men and kings of each colour is also kept, and updated as moves are made and taken back, so
+ * that evaluating a position is just a sum of four counts. Only takes and crownings change the counts, so most
+ * moves cost nothing extra. Running with -Ddraughts.checkCounts=true checks the counts against a full recount
+ * after every move, and stops with an exception if they ever disagree.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class Position
+{
+    int black; //a bit set for every square with a black piece (man or king) on it
+    int white; //a bit set for every square with a white piece (man or king) on it
+    int kings; //a bit set for every square with a king on it, of either colour
+    long key; //the Zobrist key of the pieces on the board, kept up to date as moves are made (see the Zobrist class)
+    int blackMen; //the number of black men on the board, kept up to date as moves are made
+    int whiteMen; //the number of white men
+    int blackKings; //the number of black kings
+    int whiteKings; //the number of white kings
+
+    static final boolean CHECK_COUNTS = Boolean.getBoolean("draughts.checkCounts"); //whether to check the counts after every move
+
+    /**
+     * Constructor for objects of class Position
+     * @param int black the mask of squares occupied by black pieces
+     * @param int white the mask of squares occupied by white pieces
+     * @param int kings the mask of squares occupied by kings
+     */
+    public Position(int black, int white, int kings)
+    {
+        this.black = black;
+        this.white = white;
+        this.kings = kings;
+        this.key = Zobrist.hash(this);
+        blackMen = Integer.bitCount(black & ~kings);
+        whiteMen = Integer.bitCount(white & ~kings);
+        blackKings = Integer.bitCount(black & kings);
+        whiteKings = Integer.bitCount(white & kings);
+    }
+
+    /**
+     * An empty constructor for copy(), which sets the fields itself.
+     */
+    private Position()
+    {
+    }
+
+    /**
+     * The position at the start of a game: black on the top three rows, white on the bottom three.
+     * @return Position the start position
+     */
+    public static Position getStartPosition()
+    {
+        return new Position(0x00000FFF, 0xFFF00000, 0);
+    }
+
+    /**
+     * Build a position from a state in the 2D array form used by the GUI (0 empty, 1 black, 2 white,
+     * 3 black king, 4 white king).
+     * @param int[][] state the state to convert
+     * @return Position the same state, packed
+     */
+    public static Position fromArray(int[][] state)
+    {
+        int black = 0;
+        int white = 0;
+        int kings = 0;
+        for (int s = 0; s < 32; s++) {
+            int piece = state[row(s)][col(s)];
+            if (piece==1 || piece==3) {
+                black |= 1 << s; }
+            else if (piece==2 || piece==4) {
+                white |= 1 << s; }
+            if (piece==3 || piece==4) {
+                kings |= 1 << s; }
+        }
+        return new Position(black, white, kings);
+    }
+
+    /**
+     * Unpack this position into the 2D array form, for the squares of the GUI to display.
+     * @return int[][] the state as an 8x8 array
+     */
+    public int[][] toArray()
+    {
+        int[][] state = new int[8][8];
+        for (int s = 0; s < 32; s++) {
+            state[row(s)][col(s)] = pieceAt(s);
+        }
+        return state;
+    }
+
+    /**
+     * Get the number used in the 2D array form for whatever is on a given square.
+     * @param int s the square in question
+     * @return int 0 if empty, 1 black, 2 white, 3 black king, 4 white king
+     */
+    public int pieceAt(int s)
+    {
+        int bit = 1 << s;
+        int piece = 0;
+        if ((black & bit)!=0) {
+            piece = 1; }
+        else if ((white & bit)!=0) {
+            piece = 2; }
+        if ((kings & bit)!=0) {
+            piece += 2; }
+        return piece;
+    }
+
+    /**
+     * As above, but for a row and column of the board. Light squares are always empty.
+     * @param int i the row
+     * @param int j the column
+     * @return int the number for the piece on that square
+     */
+    public int pieceAt(int i, int j)
+    {
+        int s = square(i, j);
+        if (s<0) {
+            return 0; }
+        return pieceAt(s);
+    }
+
+    /**
+     * The square number for a given row and column.
+     * @param int i the row
+     * @param int j the column
+     * @return int the square, or -1 if the row and column are off the board or a light square
+     */
+    public static int square(int i, int j)
+    {
+        if (i<0 || i>7 || j<0 || j>7 || (i + j) % 2 == 0) {
+            return -1; }
+        return 4*i + j/2;
+    }
+
+    /**
+     * @param int s a square
+     * @return int the row it is in
+     */
+    public static int row(int s)
+    {
+        return s >> 2;
+    }
+
+    /**
+     * @param int s a square
+     * @return int the column it is in (dark squares are in odd columns on even rows, and vice versa)
+     */
+    public static int col(int s)
+    {
+        return 2*(s & 3) + 1 - (row(s) & 1);
+    }
+
+    /**
+     * @param int player the player in question
+     * @return int the mask of all of that player's pieces
+     */
+    public int pieces(int player)
+    {
+        if (player==1) {
+            return black; }
+        else {
+            return white; }
+    }
+
+    /**
+     * @return int the mask of every empty dark square
+     */
+    public int empty()
+    {
+        return ~(black | white);
+    }
+
+    /**
+     * Make a move in place. See the Move class for how a move is packed, and MoveGenerator.generateMoves()
+     * for where moves come from.
+     * @param int move the move
+     * @return int the mask of taken pieces that were kings, which unmakeMove() needs to put them back
+     */
+    public int makeMove(int move)
+    {
+        int from = 1 << (move & 31);
+        int to = 1 << ((move >>> 5) & 31);
+        int captured = Move.captured(move);
+        int capturedKings = kings & captured;
+        int piece = pieceAt(move & 31);
+        int opponent;
+        if ((black & from)!=0) { //a black piece is moving
+            black ^= from ^ to; //if a chain of jumps ends where it started, this changes nothing
+            white &= ~captured;
+            opponent = 2;
+        }
+        else {
+            white ^= from ^ to;
+            black &= ~captured;
+            opponent = 1;
+        }
+        kings &= ~captured;
+        if ((kings & from)!=0) {
+            kings ^= from ^ to; }
+        else if ((move & 1024)!=0) {
+            kings |= to; }
+        key ^= Zobrist.PIECES[piece - 1][move & 31] ^ Zobrist.PIECES[pieceAt((move >>> 5) & 31) - 1][(move >>> 5) & 31];
+        toggleKeys(captured, capturedKings, opponent);
+        if ((move & 1024)!=0) { //a man became a king
+            addCounts(3 - opponent, -1, 1); }
+        if (captured!=0) {
+            int takenKings = Integer.bitCount(capturedKings);
+            addCounts(opponent, takenKings - Integer.bitCount(captured), -takenKings);
+        }
+        if (CHECK_COUNTS) {
+            checkCounts(); }
+        return capturedKings;
+    }
+
+    /**
+     * Take back a move made with makeMove(), leaving the position exactly as it was before.
+     * @param int move the move
+     * @param int capturedKings the value makeMove() returned
+     */
+    public void unmakeMove(int move, int capturedKings)
+    {
+        int from = 1 << (move & 31);
+        int to = 1 << ((move >>> 5) & 31);
+        int captured = Move.captured(move);
+        key ^= Zobrist.PIECES[pieceAt((move >>> 5) & 31) - 1][(move >>> 5) & 31];
+        if ((move & 1024)!=0) {
+            kings &= ~to; }
+        else if ((kings & to)!=0) {
+            kings ^= from ^ to; }
+        if ((black & to)!=0) { //the piece that moved was black
+            black ^= from ^ to;
+            white |= captured;
+        }
+        else {
+            white ^= from ^ to;
+            black |= captured;
+        }
+        kings |= capturedKings;
+        key ^= Zobrist.PIECES[pieceAt(move & 31) - 1][move & 31];
+        int opponent = (black & from)!=0 ? 2 : 1;
+        toggleKeys(captured, capturedKings, opponent);
+        if ((move & 1024)!=0) {
+            addCounts(3 - opponent, 1, -1); }
+        if (captured!=0) {
+            int takenKings = Integer.bitCount(capturedKings);
+            addCounts(opponent, Integer.bitCount(captured) - takenKings, takenKings);
+        }
+        if (CHECK_COUNTS) {
+            checkCounts(); }
+    }
+
+    /**
+     * Change the counts of one player's pieces.
+     * @param int player the player in question
+     * @param int men the number of men to add (negative to take away)
+     * @param int kings the number of kings to add
+     */
+    private void addCounts(int player, int men, int kings)
+    {
+        if (player==1) {
+            blackMen += men;
+            blackKings += kings;
+        }
+        else {
+            whiteMen += men;
+            whiteKings += kings;
+        }
+    }
+
+    /**
+     * Count the pieces afresh from the masks, and compare with the counts kept as moves were made.
+     * @throws IllegalStateException if they differ
+     */
+    public void checkCounts()
+    {
+        if (blackMen!=Integer.bitCount(black & ~kings) || whiteMen!=Integer.bitCount(white & ~kings)
+                || blackKings!=Integer.bitCount(black & kings) || whiteKings!=Integer.bitCount(white & kings)) {
+            throw new IllegalStateException("piece counts " + blackMen + "/" + whiteMen + "/" + blackKings + "/"
+                    + whiteKings + " don't match the position " + this);
+        }
+    }
+
+    /**
+     * XOR the keys of a set of taken pieces in or out of this position's key.
+     * @param int captured the mask of pieces taken
+     * @param int capturedKings those of them that were kings
+     * @param int opponent the player they belonged to
+     */
+    private void toggleKeys(int captured, int capturedKings, int opponent)
+    {
+        while (captured!=0) {
+            int s = Integer.numberOfTrailingZeros(captured);
+            int piece = opponent + ((capturedKings >>> s) & 1)*2;
+            key ^= Zobrist.PIECES[piece - 1][s];
+            captured &= captured - 1;
+        }
+    }
+
+    /**
+     * @return Position a separate copy of this position
+     */
+    public Position copy()
+    {
+        Position copy = new Position();
+        copy.black = black;
+        copy.white = white;
+        copy.kings = kings;
+        copy.key = key;
+        copy.blackMen = blackMen;
+        copy.whiteMen = whiteMen;
+        copy.blackKings = blackKings;
+        copy.whiteKings = whiteKings;
+        return copy;
+    }
+
+    /**
+     * Checking to see if the user (white) has won: black has no pieces left.
+     * @return boolean whether or not the user wins in this position
+     */
+    public boolean whiteWins()
+    {
+        return blackMen + blackKings==0;
+    }
+
+    /**
+     * Checking to see if the computer (black) has won: white has no pieces left.
+     * @return boolean whether or not the computer wins in this position
+     */
+    public boolean blackWins()
+    {
+        return whiteMen + whiteKings==0;
+    }
+
+    /**
+     * The same heuristic as Rules.evaluateState(): black men minus white men, plus twice black kings minus
+     * twice white kings, from the counts kept as moves are made, so no scan of the board is needed.
+     * @return int the value of the position, high being good for black
+     */
+    public int evaluate()
+    {
+        return blackMen - whiteMen + 2*blackKings - 2*whiteKings;
+    }
+
+    /**
+     * Read a position written by toString().
+     * @param String text 32 characters, one per square in order: '.' empty, 'b' black, 'w' white, 'B' black king, 'W' white king
+     * @return Position the position described
+     */
+    public static Position fromString(String text)
+    {
+        if (text.length()!=32) {
+            throw new IllegalArgumentException("a position needs one character for each of the 32 squares: " + text); }
+        int black = 0;
+        int white = 0;
+        int kings = 0;
+        for (int s = 0; s < 32; s++) {
+            char ch = text.charAt(s);
+            if (ch=='b' || ch=='B') {
+                black |= 1 << s; }
+            else if (ch=='w' || ch=='W') {
+                white |= 1 << s; }
+            else if (ch!='.') {
+                throw new IllegalArgumentException("unknown piece '" + ch + "' in " + text); }
+            if (ch=='B' || ch=='W') {
+                kings |= 1 << s; }
+        }
+        return new Position(black, white, kings);
+    }
+
+    /**
+     * @return String the position as 32 characters, one per square (see fromString())
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder text = new StringBuilder();
+        for (int s = 0; s < 32; s++) {
+            text.append(".bwBW".charAt(pieceAt(s)));
+        }
+        return text.toString();
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (!(o instanceof Position)) {
+            return false; }
+        Position p = (Position) o;
+        return black==p.black && white==p.white && kings==p.kings;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31*(31*black + white) + kings;
+    }
+}
@@ -0,0 +1,453 @@
+import java.util.ArrayList;
+/**
+ * The original rules of the game, working on the 8x8 2D array form of a state, as first written in the Board
+ * class. The game itself now runs on the Position class (see MoveGenerator), but these are kept as the reference
+ * version of the rules to check the faster code against (see Perft). They have nothing to do with the display,
+ * so they live here rather than in Board, and can be used without loading any of Swing.
+ * 
+ * In a state, 0 is an empty square, 1 a black piece, 2 a white piece, 3 a black king and 4 a white king.
+ * 
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class Rules
+{
+    /**
+     * A method to get the possible next states for either player - although this only applies to player 2
+     * (the user) for the purposes of the minimax evaluation.
+     * @param int[][] the state you want to get the next states for
+     * @param int the player in question
+     * @return ArrayList<int[][]> an ArrayList of the possible next states
+     */
+    public static ArrayList<int[][]> getPossibleStates(int[][] state, int player)
+    {
+        int king = setKing(player); //set an appropriate number (3/4) for the king, given the player
+        ArrayList<int[][]> possibleStates = new ArrayList<>(); //initialise the ArrayList
+        possibleStates = getJumpStatesState(state, possibleStates, player, king); //get any next states resulting from a jump/take
+        if (possibleStates.size()==0) { //if a jump is not possible from the given state
+            possibleStates = getStepStates(state, possibleStates, player, king); //get states resulting from a step
+        }
+        return possibleStates; //return the possible states
+    }
+    
+    /**
+     * A method to get the possible next states from the current state that would occur as a result of a jump.
+     * @param int[][] state the state to get the next states for
+     * @param ArrayList<int[][]> possibleStates an ArrayList of the possible next states
+     * @param int player the player in question
+     * @param int king the number corresponding to a king for the player in question
+     * @return ArrayList<int[][]> an ArrayList of the possible next states
+     */
+    public static ArrayList<int[][]> getJumpStatesState(int[][] state, ArrayList<int[][]> possibleStates, int player, int king)
+    {
+        for (int i = 0; i < 8; i++) { //for each row on the board
+            for (int j = 0; j < 8; j++) { //for each column on the board
+                if (state[i][j]==player || state[i][j]==king) { //if the player has a piece in this position
+                    if (jumpPoss(player,state,i,j,i+1,j+1,i+2,j+2)) { //if they can make a jump in this direction
+                        int[][] clone = makeJump(state,player,i,j,i+1,j+1,i+2,j+2); //record the resulting state as a new state
+                        if (takesPossPosition(player, clone, i+2, j+2)) { //if the same piece can make another jump, get those possible states
+                            possibleStates = getJumpStatesPosition(clone, i+2, j+2, possibleStates, player, king); }
+                        else { //add the new state to possibleStates
+                            possibleStates.add(clone); }
+                    }
+                    if (jumpPoss(player,state,i,j,i+1,j-1,i+2,j-2)) { //the same as above, but in a different direction
+                        int[][] clone = makeJump(state,player,i,j,i+1,j-1,i+2,j-2);
+                        if (takesPossPosition(player, clone, i+2, j-2)) {
+                            possibleStates = getJumpStatesPosition(clone, i+2, j-2, possibleStates, player, king); }
+                        else {
+                            possibleStates.add(clone); }
+                    }
+                    if (jumpPoss(player,state,i,j,i-1,j+1,i-2,j+2)) { //the same as above, but in a different direction
+                        int[][] clone = makeJump(state,player,i,j,i-1,j+1,i-2,j+2);
+                        if (takesPossPosition(player, clone, i-2, j+2)) {
+                            possibleStates = getJumpStatesPosition(clone, i-2, j+2, possibleStates, player, king); }
+                        else {
+                            possibleStates.add(clone); }
+                    }
+                    if (jumpPoss(player,state,i,j,i-1,j-1,i-2,j-2)) { //the same as above, but in a different direction
+                        int[][] clone = makeJump(state,player,i,j,i-1,j-1,i-2,j-2);
+                        if (takesPossPosition(player, clone, i-2, j-2)) {
+                            possibleStates = getJumpStatesPosition(clone, i-2, j-2, possibleStates, player, king); }
+                        else {
+                            possibleStates.add(clone); }
+                    }
+                }
+            }
+        }
+        return possibleStates; //return the possible next states that were found
+    }
+    
+    /**
+     * A method to get the possible next states in the wake of a jump that would occur as the result of another jump.
+     * @param int[][] state the state to get the next states for
+     * @param int i the row the piece that has just made a jump is in
+     * @param int j the column the piece that has just made a jump is in
+     * @param ArrayList<int[][]> possibleStates an ArrayList of the possible next states
+     * @param int player the player in question
+     * @param int king the number corresponding to a king for the player in question
+     * @return ArrayList<int[][]> an ArrayList of the possible next states
+     */
+    public static ArrayList<int[][]> getJumpStatesPosition(int[][] state, int i, int j, ArrayList<int[][]> possibleStates, int player, int king)
+    {
+        //follows the same process as the body of the method above, checking for possible jumps from the given state in each direction
+        if (jumpPoss(player,state,i,j,i+1,j+1,i+2,j+2)) { 
+            int[][] clone = makeJump(state,player,i,j,i+1,j+1,i+2,j+2);
+            if (takesPossPosition(player, clone, i+2, j+2)) {
+                possibleStates = getJumpStatesPosition(clone, i+2, j+2, possibleStates, player, king); } //recursive call if yet another jump is possible
+            else {
+                possibleStates.add(clone); }
+        }
+        if (jumpPoss(player,state,i,j,i+1,j-1,i+2,j-2)) {
+            int[][] clone = makeJump(state,player,i,j,i+1,j-1,i+2,j-2);
+            if (takesPossPosition(player, clone, i+2, j-2)) {
+                possibleStates = getJumpStatesPosition(clone, i+2, j-2, possibleStates, player, king); }
+            else {
+                possibleStates.add(clone); }
+        }
+        if (jumpPoss(player,state,i,j,i-1,j+1,i-2,j+2)) {
+            int[][] clone = makeJump(state,player,i,j,i-1,j+1,i-2,j+2);
+            if (takesPossPosition(player, clone, i-2, j+2)) {
+                possibleStates = getJumpStatesPosition(clone, i-2, j+2, possibleStates, player, king); }
+            else {
+                possibleStates.add(clone); }
+        }
+        if (jumpPoss(player,state,i,j,i-1,j-1,i-2,j-2)) {
+            int[][] clone = makeJump(state,player,i,j,i-1,j-1,i-2,j-2);
+            if (takesPossPosition(player, clone, i-2, j-2)) {
+                possibleStates = getJumpStatesPosition(clone, i-2, j-2, possibleStates, player, king); }
+            else {
+                possibleStates.add(clone); }
+        }
+        return possibleStates;
+    }
+    
+    /**
+     * A method to get the possible next states from the current state that would occur as a result of a step.
+     * @param int[][] state the state to get the next states for
+     * @param ArrayList<int[][]> possibleStates an ArrayList of the possible next states
+     * @param int player the player in question
+     * @param int king the number corresponding to a king for the player in question
+     * @return ArrayList<int[][]> an ArrayList of the possible next states
+     */
+    public static ArrayList<int[][]> getStepStates(int[][] state, ArrayList<int[][]> possibleStates, int player, int king)
+    {
+        if (possibleStates.size()==0) {
+            for (int i = 0; i < 8; i++) {
+                for (int j = 0; j < 8; j++) {
+                    if (state[i][j]==player || state[i][j]==king) { //if the player has a piece in this square
+                        if (stepPoss(player,state,i,j,i+1,j+1)) { //if it is possible to step in this direction
+                            int[][] clone = makeStep(state,player,i,j,i+1,j+1); //record the resulting state as a new state
+                            possibleStates.add(clone); } //add that state to possible states
+                        if (stepPoss(player,state,i,j,i+1,j-1)) {
+                            int[][] clone = makeStep(state,player,i,j,i+1,j-1);
+                            possibleStates.add(clone); }
+                        if (stepPoss(player,state,i,j,i-1,j+1)) {
+                            int[][] clone = makeStep(state,player,i,j,i-1,j+1);
+                            possibleStates.add(clone); }
+                        if (stepPoss(player,state,i,j,i-1,j-1)) {
+                            int[][] clone = makeStep(state,player,i,j,i-1,j-1);
+                            possibleStates.add(clone); }
+                    }
+                }
+            }
+        }
+        return possibleStates; //return the possible states
+    }
+    
+    /**
+     * Method to see whether a jump is possible from one given position to another.
+     * @param int player the player who would be making the jump
+     * @param int[][] state the game state the jump would be made from
+     * @param int i the row the piece is jumping from
+     * @param int j the column the piece is jumping from
+     * @param int i1 the row the piece is jumping over
+     * @param int j1 the column the piece is jumping over
+     * @param int i2 the row the piece is jumping to
+     * @param int j2 the column the piece is jumping to
+     * @return boolean whether or not the jump is possible
+     */
+    public static boolean jumpPoss(int player, int[][] state, int i, int j, int i1, int j1, int i2, int j2)
+    {
+        int king = setKing(player); //get the appropriate number representing a king for the given player
+        if (i2<0 || i2>7 || j2<0 || j2>7) { //if the square to jump to does not exist on the board
+            return false;
+        }
+        if (state[i][j]!=player && state[i][j]!=king) { //if the square being jumped from is not occupied by the player
+            return false; 
+        }
+        if (state[i2][j2]!=0) { //if the square to jump to is not empty
+            return false;
+        }
+        if (player==1) { //if the computer is moving
+            if (i2 < i && state[i][j]!=king) { //if the move is up the board, and the piece is not a king
+                return false; }
+            else if (state[i1][j1]!=2 && state[i1][j1]!=4) { //if the square being jumped over is not occupied by the opponent
+                return false; }
+            else {
+                return true; }
+        }
+        else { //if the user is moving
+            if (i2 > i && state[i][j]!=king) { //if the move is down the board, and the piece is not a king
+                return false; }
+            else if (state[i1][j1]!=1 && state[i1][j1]!=3) { //if the square being jumped over is not occupied by the opponent
+                return false; }
+            else {
+                return true; }
+        }
+    }
+    
+    /**
+     * A method to determine whether a given player can make a take from the current game state.
+     * @param int player the player in question
+     * @param int[][] state the state in question
+     * @return boolean whether or not a take is possible
+     */
+    public static boolean takesPossState(int player, int[][] state)
+    {
+        boolean takePoss = false;
+        //check to see if jump is possible from each square, in each direction
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 8; j++) {
+                if (jumpPoss(player,state,i,j,i-1,j+1,i-2,j+2)) {
+                    takePoss = true; }
+                if (jumpPoss(player,state,i,j,i-1,j-1,i-2,j-2)) {
+                    takePoss = true; }
+                if (jumpPoss(player,state,i,j,i+1,j+1,i+2,j+2)) {
+                    takePoss = true; }
+                if (jumpPoss(player,state,i,j,i+1,j-1,i+2,j-2)) {
+                    takePoss = true; }
+            }
+        }
+        return takePoss;
+    }
+    
+    /**
+     * A method to determine whether a given player can make a take with a piece in a given position.
+     * @param int player the player in question
+     * @param int[][] state the state in question
+     * @param int i the row the selected piece is in
+     * @param int j the column the selected piece is in
+     * @return boolean whether or not a take is possible
+     */
+    public static boolean takesPossPosition(int player, int[][] state, int i, int j)
+    {
+        boolean takePoss = false;
+        //from the given position, check whether a jump is possible in each direction
+        if (jumpPoss(player,state,i,j,i-1,j+1,i-2,j+2)) {
+            takePoss = true; }
+        if (jumpPoss(player,state,i,j,i-1,j-1,i-2,j-2)) {
+            takePoss = true; }
+        if (jumpPoss(player,state,i,j,i+1,j+1,i+2,j+2)) {
+            takePoss = true; }
+        if (jumpPoss(player,state,i,j,i+1,j-1,i+2,j-2)) {
+            takePoss = true; }
+        return takePoss;
+    }
+    
+    
+    /**
+     * Method to see whether a step is possible from one given position to another.
+     * @param int player the player who would be making the step
+     * @param int[][] state the game state the step would be made from
+     * @param int i the row the piece is stepping from
+     * @param int j the column the piece is stepping from
+     * @param int i1 the row the piece is moving to
+     * @param int j1 the column the piece is moving to
+     * @return boolean whether or not the step is possible
+     */
+    public static boolean stepPoss(int player, int[][] state, int i, int j, int i1, int j1)
+    {
+        int king = setKing(player);
+        if (i1<0 || i1>7 || j1<0 || j1>7) { //if trying to move to square that does not exist
+            return false;
+        }
+        if (state[i][j]!=player && state[i][j]!=king) { //if moving from square not occupied by player
+            return false; 
+        }
+        if (state[i1][j1]!=0) { //if moving to square that is not empty
+            return false;
+        }
+        if (player==1) { //if computer
+            if (i1 < i && state[i][j]!=king) { //if stepping up the board and piece is not a king
+                return false; }
+            else {
+                return true; }
+        }
+        else { //if user
+            if (i1 > i && state[i][j]!=king) { //if moving down the board and piece is not a king
+                return false; }
+            else {
+                return true; }
+        }
+    }
+    
+    /**
+     * Method to make a jump, then return the resulting state as a new state.
+     * @param int[][] state the game state the jump is happening from
+     * @param int player the player making the jump
+     * @param int i the row the piece is jumping from
+     * @param int j the column the piece is jumping from
+     * @param int i1 the row the piece is jumping over
+     * @param int j1 the column the piece is jumping over
+     * @param int i2 the row the piece is jumping to
+     * @param int j2 the column the piece is jumping to
+     * @return int[][] the resulting state
+     */
+    public static int[][] makeJump(int[][] state, int player, int i, int j, int i1, int j1, int i2, int j2)
+    {
+        int[][] clone = cloneState(state);
+        int king = setKing(player);
+        if (state[i][j]==king) {
+            player = king; }
+        clone[i][j] = 0;
+        clone[i1][j1] = 0;
+        if(kingCheck(player,i2)) {
+            clone[i2][j2] = king; }
+        else {
+            clone[i2][j2] = player; }
+        return clone;
+    }
+    
+    /**
+     * Method to make a step, then return the resulting state as a new state
+     * @param int[][] state the game state the step is being made from
+     * @param int player the player making the step
+     * @param int i the row the piece is stepping from
+     * @param int j the column the piece is stepping from
+     * @param int i1 the row the piece is moving to
+     * @param int j1 the column the piece is moving to
+     * @return int[][] the resulting state
+     */
+    public static int[][] makeStep(int[][] state, int player, int i, int j, int i1, int j1)
+    {
+        int[][] clone = cloneState(state);
+        int king = setKing(player);
+        if (state[i][j]==king) {
+            player = king; }
+        clone[i][j] = 0;
+        if(kingCheck(player,i1)) {
+            clone[i1][j1] = king; }
+        else {
+            clone[i1][j1] = player; }
+        return clone;
+    }
+    
+    /**
+     * A method to clone a given state.
+     * @param int[][] the state to be cloned
+     * @return int[][] the clone
+     */
+    public static int[][] cloneState(int[][] state)
+    {
+        int[][] clone = new int[8][8]; //initialising the clone state
+        int temp; //an int to keep a record of numbers being passed from one int[][] to the other
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 8; j++) {
+                temp = state[i][j];
+                clone[i][j] = temp;
+            }
+        }
+        return clone;
+    }
+    
+    /**
+     * A method to return the appropriate number representing a king piece for a given player.
+     * @param int player the player in question
+     * @return int the number representing a king piece
+     */
+    public static int setKing(int player)
+    {
+        int king;
+        if (player==1) {
+            king = 3; }
+        else {
+            king = 4; }
+        return king;
+    }
+    
+    /**
+     * Checking for when a piece reaches the end of the board and needs to be come a king.
+     * @param int player the player who's piece it is
+     * @param x the row on the board the piece has reached
+     * @return boolean whether or not the piece is now a king
+     */
+    public static boolean kingCheck(int player, int x)
+    {
+        if (player==1 && x==7) {
+            return true; }
+        else if (player==2 && x==0) {
+            return true; }
+        else {
+            return false; }
+    }
+    
+    /**
+     * Checking to see if the user has won the game in a given state.
+     * @param int[][] the state we want to check for
+     * @return boolean whether or not the user wins in this state
+     */
+    public static boolean wWins(int[][] state)
+    {
+        boolean wins = false;
+        int bCount = 0; //to count the number of black pieces
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 8; j++) {
+                if(state[i][j]==1 || state[i][j]==3) { //include the presence of kings
+                    bCount++; }
+            }
+        }
+        if (bCount==0) { //if there are no black pieces
+            wins = true; }
+        return wins;
+    }
+    
+    /**
+     * Checking to see if the computer has won the game in a given state.
+     * @param int[][] the state we want to check for
+     * @return boolean whether or not the computer wins in this state
+     */
+    public static boolean bWins(int[][] state)
+    {
+        boolean wins = false;
+        int wCount = 0;
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 8; j++) {
+                if(state[i][j]==2 || state[i][j]==4) {
+                    wCount++; }
+            }
+        }
+        if (wCount==0) {
+            wins = true; }
+        return wins;
+    }
+    
+    /**
+     * A method to return a value for the state reached when the depth limit has been hit in minimax. This operates as a heuristic, with the value calculated
+     * by subtracting the number of white pieces from the number of black pieces, then adding the number of black kings (multiplied by 2, to give kings more
+     * weight), and subtracting the number of white kings (multiplied by 2, again). In the minimax algorithm, the player who represents "MAX" (player 1 / the
+     * computer) wants this to be a high score, and "MIN" (player 2 / the user) wants it to be low.
+     * @param int[][] the state reached
+     * @return int the value given
+     */
+    public static int evaluateState(int[][] state)
+    {
+        int bCount = 0; //to monitor the number of black pieces
+        int wCount = 0; //to monitor the number of white pieces
+        int bKCount = 0; //to monitor the number of black kings
+        int wKCount = 0; //to monitor the number of white kings
+        //search through each square in the current state, updating the counts when we encounter corresponding pieces
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 8; j++) {
+                if (state[i][j]==1) {
+                    bCount++; }
+                else if (state[i][j]==2) {
+                    wCount++; }
+                else if (state[i][j]==3) {
+                    bKCount++; }
+                else if (state[i][j]==4) {
+                    wKCount++; }
+            }
+        }
+        int value = bCount - wCount + (2*bKCount) - (2*wKCount); //giving extra weight to kings
+        return value;
+    }}
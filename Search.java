@@ -0,0 +1,707 @@
+
+/**
+ * The minimax search used by getAIMove(), working on a single Position that is changed in place. Each move is
+ * made on the way down the search tree and taken back on the way up, and the moves found at each depth are
+ * written into arrays that are set up once, when the Search is created. So, unlike Engine.minimax(), which
+ * builds a new state for every successor, nothing is allocated while searching.
+ *
+ * Results are kept in a TranspositionTable, which lasts from one search to the next. When a position comes up
+ * again, a stored result that was searched deep enough can be used straight away (or at least tell us the score
+ * is outside alpha..beta), and otherwise the best move stored for it is tried first. Without the table (and
+ * with quiescence off, see below, and no position repeated), the scores and the move chosen would be exactly
+ * those of Engine.minimax() and getBestMove().
+ *
+ * iterate() searches to depth 1, then 2, then 3 and so on until a time budget runs out, and plays the best move
+ * of the deepest search that finished. Each pass starts from the best move of the one before, and finds the
+ * rest of its best moves in the table, so the earlier passes cost little and make the later ones cheaper.
+ *
+ * Alpha-beta prunes most when the best move is tried first, so the moves at each node are put in order before
+ * they are searched: the move from the table first, then takes (the more material taken the better), then the
+ * two "killer" moves that last caused a cutoff at the same depth, then the rest by their history score, which
+ * grows each time a move causes a cutoff anywhere in the tree. The counts of cutoffs, and of cutoffs by the
+ * first move tried, show how well this is working.
+ *
+ * Once the first move at a node has been searched, the rest are usually worse, so with pvs set each of them
+ * is first searched with a "null" window (alpha to alpha + 1), which only asks whether it beats the best so far
+ * and is much cheaper to answer. Only a move that does is searched again with the full window. With aspiration
+ * set, iterate() also searches the root of each pass with a narrow window around the score of the pass before,
+ * widening it if the score falls outside. Neither changes the score or the move chosen. Running this class
+ * (java Search depth) prints the nodes each takes to search a few test positions, against plain alpha-beta.
+ *
+ * A position at the depth limit is only evaluated once it is quiet. If the player to move there has a take,
+ * the material count would be wrong a move later (and takes are forced, so there is no choice about it), so
+ * the search carries on through the takes, and only the takes, until it reaches a position with none. This
+ * "quiescence" search has its own node budget for each position it starts from, after which it evaluates
+ * wherever it has got to, and its own counts in report().
+ *
+ * Besides the nodes, each search counts the positions it evaluated, the nodes whose moves it searched (so
+ * what share of them were cut off), and its table probes and hits, and iterate() times each pass. These are
+ * plain counters, cheap enough to leave on; Engine publishes them after each move (see SearchMetrics), and
+ * each pass of iterate() is also recorded as an IterationEvent for Java Flight Recorder.
+ *
+ * Given endgame tables (see TableBase), the search takes the result of any position in them from the tables,
+ * rather than searching on or evaluating it.
+ *
+ * Each position on the path being searched is pushed onto the game's History, and a position that repeats one
+ * since the last man moved or piece was taken (in the search or in the game before it) is scored as a draw
+ * straight away, as is one reached after too many moves without progress. So a line that goes round in a
+ * circle, as kings can, is not searched round and round.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class Search
+{
+    static final int MAX_PLY = 64; //the deepest the search can go
+    static final int MAX_MOVES = 128; //comfortably more than the most moves possible in one position
+    static final int HASH_RANK = 1 << 30; //the ranks used to put moves in order, highest first
+    static final int CAPTURE_RANK = 1 << 28;
+    static final int KILLER_RANK = 1 << 26;
+    static final int HISTORY_CAP = 1 << 24; //when a history score gets this big, they are all halved
+    static final int ASPIRATION_WINDOW = 1; //how far either side of the last pass's score the root window reaches
+    static final int QUIESCENCE_BUDGET = 2000; //the most nodes to spend following takes from one position at the depth limit
+
+    Position pos; //the position being searched, changed in place as moves are made and taken back
+    int limit; //the limit on how deep minimax can go
+    int[][] moves; //moves[depth] holds the moves found at that depth (see MoveGenerator.generateMoves())
+    int[][] ranks; //ranks[depth] holds the rank of each of those moves, for putting them in order
+    int[][] killers; //killers[depth] holds the last two quiet moves to cause a cutoff at that depth
+    int[][][] history; //history[player-1][from][to] grows each time that quiet move causes a cutoff
+    boolean orderMoves; //whether to use captures, killers and history to order moves (the table move always goes first)
+    long cutoffs; //the number of nodes where the search was cut off, in the last search
+    long expanded; //the number of nodes whose moves were searched, in the last search (so the nodes that could be cut off)
+    long leaves; //the number of positions evaluated, at the depth limit or at the end of a run of takes, in the last search
+    long tableProbes; //the number of times the table was looked in, in the last search
+    long tableHits; //the number of those that found the position
+    long[] passNodes; //passNodes[d] is the number of nodes the pass to depth d took, in the last iterate()
+    long[] passNanos; //passNanos[d] is how long it took, in nanoseconds
+    long firstMoveCutoffs; //the number of those where it was the first move tried that did it
+    int bestMove; //the best move found at the root, or -1 if there wasn't one
+    int bestScore; //the score found for that move
+    long nodes; //the number of positions visited in the last search
+    TranspositionTable table; //results of earlier searches, by position
+    long deadline; //the time (as System.currentTimeMillis()) by which iterate() must stop, or 0 for no limit
+    boolean stopped; //set when the deadline has passed, so that the search stops and unwinds
+    int depthReached; //the depth of the deepest pass iterate() finished
+    int firstMove; //a move to try first at the root (the best from the pass before), or -1
+    boolean strictDepth; //if true, only use table entries searched to exactly the depth needed, and keep the root moves in order, so results match plain minimax (to the same depth, with the same quiescence)
+    volatile boolean abort; //set by another thread to stop this search (see LazySmp)
+    SearchLimits limits; //the limits iterate() was given, or null, for the node limit and cancelling
+    long nodeLimit; //the node count at which iterate() must stop, or 0 for no limit
+    boolean pvs; //whether to search all but the first move at a node with a null window first (principal variation search)
+    boolean aspiration; //whether iterate() searches the root with a narrow window around the last pass's score
+    long researches; //the number of moves that had to be searched again after beating the null window, in the last search
+    long aspirationFails; //the number of times the score fell outside the root window and the pass was searched again
+    boolean quiescence; //whether to follow takes past the depth limit, rather than evaluating in the middle of them
+    int quiescenceBudget; //the most nodes to spend following takes from one position at the depth limit
+    int quiescenceLeft; //the nodes left of that budget, for the position being followed now
+    long quiescenceNodes; //the number of nodes visited past the depth limit, in the last search
+    long quiescenceStarts; //the number of positions at the depth limit the takes were followed from
+    long quiescenceCutShort; //the number of times the budget ran out
+    int quiescenceDepth; //the furthest past the depth limit the takes were followed
+    TableBase tableBase; //endgame tables to take exact results from, or null
+    History gameHistory; //the positions the game has been through, with those on the path being searched pushed on top
+    long repetitions; //the number of positions scored as draws because they repeated an earlier one, or for lack of progress, in the last search
+    long tableBaseHits; //the number of positions whose result was found in them, in the last search
+
+    /**
+     * Constructor for objects of class Search, with a transposition table of just over a million entries.
+     */
+    public Search()
+    {
+        this(new TranspositionTable(20));
+    }
+
+    /**
+     * Constructor for objects of class Search. All of the move arrays are made here, once.
+     * @param TranspositionTable table the table to keep results in
+     */
+    public Search(TranspositionTable table)
+    {
+        moves = new int[MAX_PLY][MAX_MOVES];
+        ranks = new int[MAX_PLY][MAX_MOVES];
+        killers = new int[MAX_PLY][2];
+        passNodes = new long[MAX_PLY];
+        passNanos = new long[MAX_PLY];
+        history = new int[2][32][32];
+        orderMoves = true;
+        pvs = true;
+        aspiration = true;
+        quiescence = true;
+        quiescenceBudget = QUIESCENCE_BUDGET;
+        gameHistory = new History();
+        bestMove = -1;
+        this.table = table;
+    }
+
+    /**
+     * Search a position to a given depth, and record the best move for the player to move. The computer
+     * (player 1) picks the first move with the highest score, as getBestMove() does, and the user (player 2)
+     * the first with the lowest.
+     * @param Position root the position to search from (this is not changed)
+     * @param int player the player to move
+     * @param int limit how many moves ahead to look
+     * @return int the score of the best move, or of the position itself if there are no moves to search
+     */
+    public int search(Position root, int player, int limit)
+    {
+        this.pos = root.copy(); //work on a copy, so the caller's position is left alone
+        this.limit = limit;
+        bestMove = -1;
+        firstMove = -1;
+        nodes = 0;
+        deadline = 0;
+        stopped = false;
+        newSearch();
+        int played = enterHistory(player);
+        bestScore = minimax(0, player, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        gameHistory.truncate(played);
+        depthReached = limit;
+        return bestScore;
+    }
+
+    /**
+     * Search a position to depth 1, 2, 3 and so on, until either the time budget runs out or the depth limit
+     * is reached, and record the best move of the deepest search that finished. The first pass always finishes,
+     * so there is always a move if one is possible.
+     * @param Position root the position to search from (this is not changed)
+     * @param int player the player to move
+     * @param int maxDepth the deepest to go, however much time is left
+     * @param long budget the number of milliseconds to spend, or 0 for no limit
+     * @return int the score of the best move
+     */
+    public int iterate(Position root, int player, int maxDepth, long budget)
+    {
+        return iterate(root, player, 1, maxDepth, budget);
+    }
+
+    /**
+     * As above, but within a set of limits: the depth and time limits as above, along with a limit on the
+     * positions visited, which like the time lets the first pass finish, and a flag that stops the search at
+     * once, even in the first pass (in which case there may be no best move).
+     * @param Position root the position to search from (this is not changed)
+     * @param int player the player to move
+     * @param SearchLimits limits the limits on the search
+     * @return int the score of the best move
+     */
+    public int iterate(Position root, int player, SearchLimits limits)
+    {
+        this.limits = limits;
+        int score = iterate(root, player, 1, limits.maxDepth, limits.maxMillis);
+        this.limits = null;
+        return score;
+    }
+
+    /**
+     * As above, but starting from a given depth rather than 1.
+     * @param Position root the position to search from (this is not changed)
+     * @param int player the player to move
+     * @param int firstDepth the depth of the first pass
+     * @param int maxDepth the deepest to go, however much time is left
+     * @param long budget the number of milliseconds to spend, or 0 for no limit
+     * @return int the score of the best move
+     */
+    public int iterate(Position root, int player, int firstDepth, int maxDepth, long budget)
+    {
+        this.pos = root.copy();
+        nodes = 0;
+        newSearch();
+        int played = enterHistory(player);
+        long stopAt = budget > 0 ? System.currentTimeMillis() + budget : 0;
+        depthReached = 0;
+        firstMove = -1;
+        int doneMove = -1; //the result of the last pass to finish
+        int doneScore = 0;
+        for (int depth = firstDepth; depth <= Math.min(maxDepth, MAX_PLY - 1); depth++) {
+            IterationEvent event = SearchMetrics.recording() ? new IterationEvent() : null;
+            if (event!=null) {
+                event.begin(); }
+            long passStart = System.nanoTime();
+            long nodesBefore = nodes;
+            limit = depth;
+            stopped = false;
+            deadline = depthReached > 0 ? stopAt : 0; //the first pass always finishes
+            nodeLimit = depthReached > 0 && limits!=null ? limits.maxNodes : 0;
+            if (limits!=null && limits.cancelled) { //cancelled before this pass started
+                break; }
+            int low = Integer.MIN_VALUE;
+            int high = Integer.MAX_VALUE;
+            if (aspiration && depthReached > 0) { //expect much the same score as last time
+                low = doneScore - ASPIRATION_WINDOW;
+                high = doneScore + ASPIRATION_WINDOW;
+            }
+            int score;
+            while (true) {
+                bestMove = -1;
+                score = minimax(0, player, low, high);
+                if (stopped) {
+                    break; }
+                if (score<=low && low!=Integer.MIN_VALUE) { //below the window: all we know is an upper bound, so search again
+                    low = Integer.MIN_VALUE;
+                    aspirationFails++;
+                }
+                else if (score>=high && high!=Integer.MAX_VALUE) { //above it
+                    high = Integer.MAX_VALUE;
+                    aspirationFails++;
+                }
+                else {
+                    break; }
+            }
+            if (stopped) { //ran out of time part way through, so this pass doesn't count
+                break; }
+            passNodes[depth] = nodes - nodesBefore;
+            passNanos[depth] = System.nanoTime() - passStart;
+            if (event!=null && event.shouldCommit()) {
+                event.depth = depth;
+                event.nodes = passNodes[depth];
+                event.score = score;
+                event.move = bestMove>=0 ? Move.describe(bestMove) : null;
+                event.commit();
+            }
+            doneMove = bestMove;
+            doneScore = score;
+            depthReached = depth;
+            if (doneMove<0 || Math.abs(score)==24) { //no move to make, or the result is already decided
+                break; }
+            firstMove = doneMove; //start the next pass from this one's best move
+        }
+        gameHistory.truncate(played);
+        bestMove = doneMove;
+        bestScore = doneScore;
+        deadline = 0;
+        nodeLimit = 0;
+        stopped = false;
+        return doneScore;
+    }
+
+    /**
+     * Search the position below a root move, for a search split between threads (see ParallelSearch). The
+     * position given should already have the root move made on it.
+     * @param Position start the position to search from (this is not changed)
+     * @param int player the player to move in that position
+     * @param int depth how far below the root that position is
+     * @param int limit the depth limit of the whole search
+     * @param int alpha the value of alpha to search with
+     * @param int beta the value of beta to search with
+     * @return int the score found, or 0 if the deadline passed (in which case stopped is set)
+     */
+    public int searchBelow(Position start, int player, int depth, int limit, int alpha, int beta)
+    {
+        this.pos = start.copy();
+        this.limit = limit;
+        stopped = false;
+        return minimax(depth, player, alpha, beta);
+    }
+
+    /**
+     * The same algorithm as Engine.minimax(), but making and taking back each move on the one position.
+     * @param int depth how far it is going down the search tree
+     * @param int player the player who is making the next (imaginary) move
+     * @param int alpha the value of alpha at the previous state
+     * @param int beta the value of beta at the previous state
+     * @return int a value corresponding to the result reached
+     */
+    public int minimax(int depth, int player, int alpha, int beta)
+    {
+        nodes++;
+        if ((nodes & 1023)==0 && (abort || (deadline!=0 && System.currentTimeMillis()>=deadline)
+                || (nodeLimit!=0 && nodes>=nodeLimit) || (limits!=null && limits.cancelled))) {
+            stopped = true; //out of time or nodes, or told to stop (checked every 1024 nodes, as asking for the time isn't free)
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (pos.blackWins()) { //the computer has won
+            return 24;
+        }
+        if (pos.whiteWins()) { //the user has won
+            return -24;
+        }
+        if (depth>0 && (gameHistory.repeated() || gameHistory.noProgress())) { //round in a circle, or getting nowhere: a draw
+            repetitions++;
+            return 0;
+        }
+        if (tableBase!=null && depth>0) { //with few enough pieces left, the result is known exactly
+            int value = tableBase.probe(pos, player);
+            if (value>=0) {
+                tableBaseHits++;
+                return TableBase.score(value, player);
+            }
+        }
+        if (depth==limit) { //if the depth limit has been hit, evaluate the position reached
+            if (quiescence && MoveGenerator.hasCapture(pos, player)) { //unless it is in the middle of a run of takes
+                quiescenceStarts++;
+                quiescenceLeft = quiescenceBudget;
+                return quiesce(depth, player, alpha, beta);
+            }
+            if (!MoveGenerator.hasMoves(pos, player)) { //or no moves can be made, which is a draw
+                return 0; }
+            leaves++;
+            return pos.evaluate();
+        }
+
+        long key = Zobrist.key(pos, player);
+        long entry = table.probe(key);
+        int hashMove = -1;
+        tableProbes++;
+        if (entry!=0) { //this position has been searched before
+            tableHits++;
+            int score = TranspositionTable.score(entry);
+            int bound = TranspositionTable.bound(entry);
+            int searched = TranspositionTable.depth(entry);
+            if (depth>0 && (strictDepth ? searched==limit - depth : searched>=limit - depth)) { //and deep enough (the root still needs its move, though)
+                if (bound==TranspositionTable.EXACT
+                        || (bound==TranspositionTable.LOWER && score>=beta)
+                        || (bound==TranspositionTable.UPPER && score<=alpha)) {
+                    return score; }
+            }
+            hashMove = TranspositionTable.move(entry);
+        }
+        if (depth==0 && firstMove>=0) { //at the root, the best move of the previous pass goes first
+            hashMove = firstMove;
+        }
+
+        int[] m = moves[depth];
+        int count = MoveGenerator.generateMoves(pos, player, m);
+        if (count==0) { //if no moves can be made, a draw
+            return 0;
+        }
+        expanded++;
+        boolean ordered = !(strictDepth && depth==0);
+        if (ordered) {
+            rankMoves(depth, player, count, hashMove); }
+        int alphaStart = alpha;
+        int betaStart = beta;
+        int best = 0; //the index of the best move found here
+
+        int bestScore;
+        if (player==1) {
+            bestScore = -24; }
+        else {
+            bestScore = 24; }
+        for (int i = 0; i < count; i++) {
+            if (ordered) {
+                pickNext(depth, i, count); }
+            int capturedKings = pos.makeMove(m[i]);
+            gameHistory.push(pos, 3 - player);
+            int currentScore;
+            if (pvs && i > 0) { //first just ask whether this move beats the best so far
+                if (player==1) {
+                    currentScore = minimax(depth + 1, 2, alpha, alpha + 1);
+                    if (currentScore > alpha && currentScore < beta && !stopped) { //it does, so find its real score
+                        researches++;
+                        currentScore = minimax(depth + 1, 2, alpha, beta);
+                    }
+                }
+                else {
+                    currentScore = minimax(depth + 1, 1, beta - 1, beta);
+                    if (currentScore < beta && currentScore > alpha && !stopped) {
+                        researches++;
+                        currentScore = minimax(depth + 1, 1, alpha, beta);
+                    }
+                }
+            }
+            else {
+                currentScore = minimax(depth + 1, 3 - player, alpha, beta); }
+            gameHistory.pop();
+            pos.unmakeMove(m[i], capturedKings);
+            if (stopped) { //out of time: nothing found from here on can be trusted
+                return 0;
+            }
+            if (depth==0 && (bestMove<0 || (player==1 ? currentScore > this.bestScore : currentScore < this.bestScore))) {
+                bestMove = m[i]; //the best move so far at the root
+                this.bestScore = currentScore;
+            }
+            if (player==1) {
+                if (currentScore > bestScore) {
+                    best = i; }
+                bestScore = Math.max(bestScore, currentScore);
+                alpha = Math.max(currentScore, alpha);
+            }
+            else {
+                if (currentScore < bestScore) {
+                    best = i; }
+                bestScore = Math.min(bestScore, currentScore);
+                beta = Math.min(currentScore, beta);
+            }
+            if (alpha>=beta) { //there is no point going any further
+                cutoffs++;
+                if (i==0) {
+                    firstMoveCutoffs++; }
+                if (!Move.isCapture(m[i])) { //remember quiet moves that cause cutoffs, to try them early elsewhere
+                    rememberCutoff(depth, player, m[i]); }
+                break;
+            }
+        }
+
+        int bound;
+        if (bestScore<=alphaStart) {
+            bound = TranspositionTable.UPPER; }
+        else if (bestScore>=betaStart) {
+            bound = TranspositionTable.LOWER; }
+        else {
+            bound = TranspositionTable.EXACT; }
+        table.store(key, limit - depth, bound, bestScore, m[best]);
+        return bestScore;
+    }
+
+    /**
+     * Follow the takes from a position past the depth limit until neither player has one to make, and return
+     * the score of the position reached. As takes are forced, every take is searched (with alpha-beta), and
+     * there is no option of standing still. If the budget runs out first, the position is evaluated as it is.
+     * @param int depth how far it is down the search tree (at least the limit)
+     * @param int player the player to move
+     * @param int alpha the value of alpha at the previous state
+     * @param int beta the value of beta at the previous state
+     * @return int a value corresponding to the result reached
+     */
+    private int quiesce(int depth, int player, int alpha, int beta)
+    {
+        nodes++;
+        quiescenceNodes++;
+        quiescenceDepth = Math.max(quiescenceDepth, depth - limit);
+        if (pos.blackWins()) {
+            return 24; }
+        if (pos.whiteWins()) {
+            return -24; }
+        if (!MoveGenerator.hasCapture(pos, player)) { //quiet at last
+            if (!MoveGenerator.hasMoves(pos, player)) {
+                return 0; }
+            leaves++;
+            return pos.evaluate();
+        }
+        if (--quiescenceLeft < 0 || depth >= MAX_PLY - 1) { //out of budget (or room): take the position as it stands
+            quiescenceCutShort++;
+            leaves++;
+            return pos.evaluate();
+        }
+
+        int[] m = moves[depth];
+        int count = MoveGenerator.generateMoves(pos, player, m); //all takes, as a take is possible
+        rankMoves(depth, player, count, -1); //the most material first
+        int bestScore = player==1 ? -24 : 24;
+        for (int i = 0; i < count; i++) {
+            pickNext(depth, i, count);
+            int capturedKings = pos.makeMove(m[i]);
+            int currentScore = quiesce(depth + 1, 3 - player, alpha, beta);
+            pos.unmakeMove(m[i], capturedKings);
+            if (player==1) {
+                bestScore = Math.max(bestScore, currentScore);
+                alpha = Math.max(currentScore, alpha);
+            }
+            else {
+                bestScore = Math.min(bestScore, currentScore);
+                beta = Math.min(currentScore, beta);
+            }
+            if (alpha>=beta) {
+                break; }
+        }
+        return bestScore;
+    }
+
+    /**
+     * Give each move at a node a rank: the table's move highest, then takes by the material they win, then
+     * the killer moves for this depth, then the rest by their history scores.
+     * @param int depth the depth of the node
+     * @param int player the player to move
+     * @param int count the number of moves
+     * @param int hashMove the move from the table, or -1
+     */
+    private void rankMoves(int depth, int player, int count, int hashMove)
+    {
+        int[] m = moves[depth];
+        int[] r = ranks[depth];
+        int[][] scores = history[player - 1];
+        for (int i = 0; i < count; i++) {
+            if (m[i]==hashMove) {
+                r[i] = HASH_RANK; }
+            else if (!orderMoves) {
+                r[i] = 0; }
+            else if (Move.isCapture(m[i])) { //a king taken is worth two men, and being crowned on the way one more
+                int captured = Move.captured(m[i]);
+                r[i] = CAPTURE_RANK + 16*(Integer.bitCount(captured) + Integer.bitCount(captured & pos.kings)) + ((m[i] >>> 10) & 1);
+            }
+            else if (m[i]==killers[depth][0]) {
+                r[i] = KILLER_RANK + 1; }
+            else if (m[i]==killers[depth][1]) {
+                r[i] = KILLER_RANK; }
+            else {
+                r[i] = scores[m[i] & 31][(m[i] >>> 5) & 31]; }
+        }
+    }
+
+    /**
+     * Bring the highest-ranked of the moves not yet tried to the front. The moves passed over keep their order,
+     * so that moves of equal rank are tried in the order they were generated.
+     * @param int depth the depth of the node
+     * @param int next the place the next move to try should go
+     * @param int count the number of moves
+     */
+    private void pickNext(int depth, int next, int count)
+    {
+        int[] m = moves[depth];
+        int[] r = ranks[depth];
+        int best = next;
+        for (int i = next + 1; i < count; i++) {
+            if (r[i] > r[best]) {
+                best = i; }
+        }
+        if (best!=next) {
+            int move = m[best];
+            int rank = r[best];
+            for (int i = best; i > next; i--) {
+                m[i] = m[i - 1];
+                r[i] = r[i - 1];
+            }
+            m[next] = move;
+            r[next] = rank;
+        }
+    }
+
+    /**
+     * Record a quiet move that caused a cutoff, as a killer for its depth and in the history scores.
+     * @param int depth the depth of the node
+     * @param int player the player who made the move
+     * @param int move the move
+     */
+    private void rememberCutoff(int depth, int player, int move)
+    {
+        if (killers[depth][0]!=move) {
+            killers[depth][1] = killers[depth][0];
+            killers[depth][0] = move;
+        }
+        int remaining = limit - depth;
+        int[][] scores = history[player - 1];
+        scores[move & 31][(move >>> 5) & 31] += remaining*remaining; //cutoffs far from the leaves count for more
+        if (scores[move & 31][(move >>> 5) & 31] > HISTORY_CAP) {
+            ageHistory(); }
+    }
+
+    /**
+     * Halve all of the history scores, so that recent cutoffs count for more than old ones.
+     */
+    private void ageHistory()
+    {
+        for (int[][] scores : history) {
+            for (int[] row : scores) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] /= 2; }
+            }
+        }
+    }
+
+    /**
+     * Get ready for a new search: reset the counts, forget the killer moves and age the history scores.
+     */
+    void newSearch()
+    {
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        expanded = 0;
+        leaves = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        java.util.Arrays.fill(passNodes, 0);
+        java.util.Arrays.fill(passNanos, 0);
+        researches = 0;
+        aspirationFails = 0;
+        quiescenceNodes = 0;
+        quiescenceStarts = 0;
+        quiescenceCutShort = 0;
+        quiescenceDepth = 0;
+        tableBaseHits = 0;
+        repetitions = 0;
+        for (int[] k : killers) {
+            k[0] = -1;
+            k[1] = -1;
+        }
+        ageHistory();
+    }
+
+    /**
+     * Put the root on top of the game's history, unless it is already there (as it is when the history comes
+     * from the game being played).
+     * @param int player the player to move at the root
+     * @return int the size of the history before the search, to cut it back to afterwards
+     */
+    private int enterHistory(int player)
+    {
+        int played = gameHistory.size;
+        if (gameHistory.top()!=Zobrist.key(pos, player)) {
+            gameHistory.push(pos, player); }
+        return played;
+    }
+
+    /**
+     * The effective branching factor of the last search: how many times more nodes its deepest pass took than
+     * the pass before. For a search to a fixed depth, with no passes to compare, it is the number that raised
+     * to the power of the depth gives the nodes visited.
+     * @return double the branching factor, or 0 if nothing was searched
+     */
+    public double branchingFactor()
+    {
+        if (depthReached>=2 && passNodes[depthReached]>0 && passNodes[depthReached - 1]>0) {
+            return (double) passNodes[depthReached]/passNodes[depthReached - 1]; }
+        if (depthReached>0 && nodes>0) {
+            return Math.pow(nodes, 1.0/depthReached); }
+        return 0;
+    }
+
+    /**
+     * @return String a line giving the nodes visited in the last search, how well the moves were ordered, and
+     * how much of the search was spent following takes past the depth limit
+     */
+    public String report()
+    {
+        return String.format("depth %d, %d nodes, %d cutoffs, %.1f%% by the first move tried, %d re-searches, "
+                + "%d aspiration fails; quiescence: %d nodes from %d positions, up to %d deeper, budget ran out %d times; "
+                + "%d endgame table hits, %d repetitions",
+                depthReached, nodes, cutoffs, cutoffs==0 ? 0.0 : 100.0*firstMoveCutoffs/cutoffs, researches,
+                aspirationFails, quiescenceNodes, quiescenceStarts, quiescenceDepth, quiescenceCutShort, tableBaseHits, repetitions);
+    }
+
+    /**
+     * @return Position the position reached by playing the best move found, or null if there wasn't one
+     */
+    public Position getBestPosition()
+    {
+        if (bestMove<0) {
+            return null; }
+        Position next = pos.copy();
+        next.makeMove(bestMove);
+        return next;
+    }
+
+    /**
+     * Search the positions used by the benchmarks with plain alpha-beta, with pvs, and with pvs and aspiration
+     * windows, and print the nodes each took and the move and score it found.
+     * @param String[] args the depth to search to (default 10), and -strict to search with strictDepth set, so
+     * that the moves and scores have to agree exactly
+     */
+    public static void main(String[] args)
+    {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        boolean strict = args.length > 1 && args[1].equals("-strict");
+        String[] names = {"opening", "middlegame", "endgame", "capture chain"};
+        String[] positions = {"bbbbbbbbbbbb........wwwwwwwwwwww", "b.bb.b.b.bb...w.wwb....w.w.ww..w",
+                              "..W........wW...........B..B..B.", "....b.bb..bbb.b..w.wbw..ww.w...."};
+        String[] modes = {"alpha-beta", "pvs", "pvs+aspiration"};
+        long[] totals = new long[modes.length];
+        for (int i = 0; i < positions.length; i++) {
+            for (int mode = 0; mode < modes.length; mode++) {
+                Search search = new Search(new TranspositionTable(20));
+                search.strictDepth = strict;
+                search.pvs = mode > 0;
+                search.aspiration = mode > 1;
+                int score = strict ? search.search(Position.fromString(positions[i]), 1, depth)
+                                   : search.iterate(Position.fromString(positions[i]), 1, depth, 0);
+                totals[mode] += search.nodes;
+                System.out.printf("%-14s %-15s %10d nodes  %-8s score %3d  %d re-searches, %d aspiration fails%n",
+                        names[i], modes[mode], search.nodes, Move.describe(search.bestMove),
+                        score, search.researches, search.aspirationFails);
+            }
+        }
+        for (int mode = 1; mode < modes.length; mode++) {
+            System.out.printf("%s: %.1f%% of the nodes of alpha-beta%n", modes[mode], 100.0*totals[mode]/totals[0]); }
+    }
+}
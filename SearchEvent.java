@@ -0,0 +1,55 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.StackTrace;
+/**
+ * A Java Flight Recorder event for each move the engine works out, with the numbers that say how the search
+ * went (see SearchMetrics, which keeps the same numbers for JMX). The event's duration is the time the move
+ * took. To record a game, start a recording on the running game (jcmd <pid> JFR.start filename=game.jfr),
+ * then open game.jfr in JDK Mission Control, or print the events with: jfr print --events draughts.Search game.jfr
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+@Name("draughts.Search")
+@Label("Search")
+@Category("Draughts")
+@Description("The search for one of the engine's moves")
+@StackTrace(false)
+public class SearchEvent extends Event
+{
+    @Label("Player")
+    int player; //the player the move was for
+
+    @Label("Move")
+    String move; //the move chosen, as Move.describe() writes it
+
+    @Label("Score")
+    int score; //its score (high is good for black)
+
+    @Label("Depth")
+    int depth; //the depth of the deepest pass that finished
+
+    @Label("Nodes")
+    long nodes; //the positions visited, over all threads
+
+    @Label("Leaves")
+    long leaves; //the positions evaluated
+
+    @Label("Cutoff Rate")
+    @Percentage
+    double cutoffRate; //the share of the nodes whose moves were searched that were cut off
+
+    @Label("Branching Factor")
+    double branchingFactor; //see Search.branchingFactor()
+
+    @Label("Table Hit Rate")
+    @Percentage
+    double tableHitRate; //the share of table probes that found their position
+
+    @Label("Quiescence Nodes")
+    long quiescenceNodes; //the positions visited following takes past the depth limit
+}
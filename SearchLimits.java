@@ -0,0 +1,85 @@
+
+/**
+ * The limits on one search for a move: how deep it may go, how many positions it may visit and how long it may
+ * take, along with a flag that another thread can set to cancel it. The search checks the flag, the node count
+ * and the clock every 1024 positions, so cancelling costs nothing until it's done, and takes effect within a
+ * fraction of a millisecond.
+ *
+ * The node and time limits let the first pass of the deepening finish, so that there is always a move to play,
+ * and then stop the search wherever it has got to, so that the move played is the best of the deepest pass
+ * that finished. Cancelling stops the search at once, even in its first pass; Engine then plays the best move
+ * found so far, or if there isn't one, the first move possible.
+ *
+ * A server can give each request its own limits, to cap the CPU any one client can take, and cancel them if
+ * the client goes away (see GameServer).
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class SearchLimits
+{
+    int maxDepth; //the deepest to search (0 for a random move, see Engine)
+    long maxNodes; //the most positions to visit, or 0 for no limit
+    long maxMillis; //the most milliseconds to take, or 0 for no limit
+    volatile boolean cancelled; //set to stop the search
+
+    /**
+     * Constructor for objects of class SearchLimits
+     * @param int maxDepth the deepest to search
+     * @param long maxNodes the most positions to visit, or 0 for no limit
+     * @param long maxMillis the most milliseconds to take, or 0 for no limit
+     */
+    public SearchLimits(int maxDepth, long maxNodes, long maxMillis)
+    {
+        this.maxDepth = Math.min(maxDepth, Search.MAX_PLY - 1);
+        this.maxNodes = maxNodes;
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * Stop the search, from any thread. If it hasn't started yet, it stops as soon as it does.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    /**
+     * @return boolean whether the search has been cancelled
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Whether a search within these limits goes at least as far as one within another set would: at least as
+     * deep, and with at least as many positions and as much time, no limit being the most of all.
+     * @param SearchLimits other the other limits
+     * @return boolean whether these are at least as wide
+     */
+    public boolean covers(SearchLimits other)
+    {
+        return maxDepth>=other.maxDepth && atLeast(maxNodes, other.maxNodes) && atLeast(maxMillis, other.maxMillis);
+    }
+
+    /**
+     * @param long budget a number of positions or milliseconds, or 0 for no limit
+     * @param long other another, likewise
+     * @return boolean whether the first allows at least as much as the second
+     */
+    private static boolean atLeast(long budget, long other)
+    {
+        return budget==0 || (other!=0 && budget>=other);
+    }
+
+    /**
+     * @return String the limits, for printing
+     */
+    @Override
+    public String toString()
+    {
+        return "depth " + maxDepth + (maxNodes > 0 ? ", " + maxNodes + " nodes" : "")
+               + (maxMillis > 0 ? ", " + maxMillis + "ms" : "") + (cancelled ? ", cancelled" : "");
+    }
+}
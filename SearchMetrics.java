@@ -0,0 +1,306 @@
+import java.lang.management.ManagementFactory;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jdk.jfr.FlightRecorder;
+/**
+ * Numbers about the engine's searches, for watching what the search does while the game runs rather than just
+ * how long each move takes. They are published in two ways: over JMX, as the MBean "draughts:type=SearchMetrics"
+ * (open JConsole or VisualVM on the running game), and to Java Flight Recorder, as a SearchEvent for each move.
+ *
+ * Search keeps the counts as it goes anyway, and Engine calls record() once for each move it works out, so
+ * keeping the metrics costs a few field writes a move and can be left on. There is one set for the whole JVM,
+ * shared by every Engine in it. The Flight Recorder events are only made once a recording has been started
+ * (from the command line or later with jcmd), as the first event made sets up the recorder, which is slow.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class SearchMetrics implements SearchMetricsMBean
+{
+    static final String NAME = "draughts:type=SearchMetrics"; //the name the MBean is registered under
+
+    private static SearchMetrics metrics; //the one set, made and registered the first time it's asked for
+
+    long searches; //the number of moves recorded
+    long totalNodes; //the positions visited for all of them
+    long totalLeaves; //the positions evaluated
+    long totalNanos; //the time taken
+    long totalExpanded; //the nodes whose moves were searched
+    long totalCutoffs; //the nodes that were cut off
+    long totalProbes; //the table probes
+    long totalHits; //the table probes that found their position
+
+    int lastDepth; //the same for the last move, as described in SearchMetricsMBean
+    long lastNodes;
+    long lastLeaves;
+    long lastNanos;
+    double lastCutoffRate;
+    double lastBranchingFactor;
+    double lastTableHitRate;
+    long lastQuiescenceNodes;
+    double[] lastIterationMillis;
+
+    /**
+     * Constructor for objects of class SearchMetrics. Use get() rather than making another.
+     */
+    private SearchMetrics()
+    {
+        lastIterationMillis = new double[0];
+    }
+
+    /**
+     * Get the metrics, registering them with the platform MBean server the first time.
+     * @return SearchMetrics the metrics for this JVM
+     */
+    public static synchronized SearchMetrics get()
+    {
+        if (metrics==null) {
+            metrics = new SearchMetrics();
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                ObjectName name = new ObjectName(NAME);
+                try {
+                    server.registerMBean(metrics, name);
+                }
+                catch (InstanceAlreadyExistsException e) { //left over from an earlier copy of the classes (BlueJ reloads them after each compile)
+                    server.unregisterMBean(name);
+                    server.registerMBean(metrics, name);
+                }
+            }
+            catch (JMException e) {
+                throw new IllegalStateException("couldn't register " + NAME, e);
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * @return boolean whether Flight Recorder has been started, so that events are worth making
+     */
+    public static boolean recording()
+    {
+        return FlightRecorder.isInitialized();
+    }
+
+    /**
+     * Record the search for one move, and commit the Flight Recorder event for it.
+     * @param Search search the search that found the move (for LazySmp, the main thread's)
+     * @param int player the player the move was for
+     * @param int move the move chosen, or -1
+     * @param int score its score
+     * @param long nodes the positions visited, over all threads
+     * @param long nanos the time taken, in nanoseconds
+     * @param SearchEvent event the event begun when the search started, or null if Flight Recorder wasn't running
+     */
+    public synchronized void record(Search search, int player, int move, int score, long nodes, long nanos,
+                                    SearchEvent event)
+    {
+        searches++;
+        totalNodes += nodes;
+        totalLeaves += search.leaves;
+        totalNanos += nanos;
+        totalExpanded += search.expanded;
+        totalCutoffs += search.cutoffs;
+        totalProbes += search.tableProbes;
+        totalHits += search.tableHits;
+
+        lastDepth = search.depthReached;
+        lastNodes = nodes;
+        lastLeaves = search.leaves;
+        lastNanos = nanos;
+        lastCutoffRate = rate(search.cutoffs, search.expanded);
+        lastBranchingFactor = search.branchingFactor();
+        lastTableHitRate = rate(search.tableHits, search.tableProbes);
+        lastQuiescenceNodes = search.quiescenceNodes;
+        lastIterationMillis = new double[search.depthReached];
+        for (int d = 1; d <= search.depthReached; d++) {
+            lastIterationMillis[d - 1] = search.passNanos[d]/1e6; }
+
+        if (event!=null && event.shouldCommit()) {
+            event.player = player;
+            event.move = move>=0 ? Move.describe(move) : null;
+            event.score = score;
+            event.depth = lastDepth;
+            event.nodes = nodes;
+            event.leaves = lastLeaves;
+            event.cutoffRate = lastCutoffRate;
+            event.branchingFactor = lastBranchingFactor;
+            event.tableHitRate = lastTableHitRate;
+            event.quiescenceNodes = lastQuiescenceNodes;
+            event.commit();
+        }
+    }
+
+    /**
+     * @param long part a count
+     * @param long whole what it is out of
+     * @return double part as a share of whole, or 0 if whole is 0
+     */
+    private static double rate(long part, long whole)
+    {
+        return whole==0 ? 0.0 : (double) part/whole;
+    }
+
+    /**
+     * @return long the number of moves searched for
+     */
+    public synchronized long getSearches()
+    {
+        return searches;
+    }
+
+    /**
+     * @return long the positions visited in all of them
+     */
+    public synchronized long getTotalNodes()
+    {
+        return totalNodes;
+    }
+
+    /**
+     * @return long the positions evaluated (at the depth limit or the end of a run of takes) in all of them
+     */
+    public synchronized long getTotalLeaves()
+    {
+        return totalLeaves;
+    }
+
+    /**
+     * @return double the time they took, in milliseconds
+     */
+    public synchronized double getTotalMillis()
+    {
+        return totalNanos/1e6;
+    }
+
+    /**
+     * @return double the positions visited a second, over all of them
+     */
+    public synchronized double getNodesPerSecond()
+    {
+        return totalNanos==0 ? 0.0 : totalNodes*1e9/totalNanos;
+    }
+
+    /**
+     * @return double the share of positions whose moves were searched that were cut off
+     */
+    public synchronized double getCutoffRate()
+    {
+        return rate(totalCutoffs, totalExpanded);
+    }
+
+    /**
+     * @return double the share of table probes that found an entry
+     */
+    public synchronized double getTableHitRate()
+    {
+        return rate(totalHits, totalProbes);
+    }
+
+    /**
+     * @return int the depth of the deepest pass the last search finished
+     */
+    public synchronized int getLastDepth()
+    {
+        return lastDepth;
+    }
+
+    /**
+     * @return long the positions the last search visited
+     */
+    public synchronized long getLastNodes()
+    {
+        return lastNodes;
+    }
+
+    /**
+     * @return long the positions it evaluated
+     */
+    public synchronized long getLastLeaves()
+    {
+        return lastLeaves;
+    }
+
+    /**
+     * @return double the time it took, in milliseconds
+     */
+    public synchronized double getLastMillis()
+    {
+        return lastNanos/1e6;
+    }
+
+    /**
+     * @return double the positions it visited a second
+     */
+    public synchronized double getLastNodesPerSecond()
+    {
+        return lastNanos==0 ? 0.0 : lastNodes*1e9/lastNanos;
+    }
+
+    /**
+     * @return double the share of its positions that were cut off
+     */
+    public synchronized double getLastCutoffRate()
+    {
+        return lastCutoffRate;
+    }
+
+    /**
+     * @return double its effective branching factor (see Search.branchingFactor())
+     */
+    public synchronized double getLastBranchingFactor()
+    {
+        return lastBranchingFactor;
+    }
+
+    /**
+     * @return double the share of its table probes that found an entry
+     */
+    public synchronized double getLastTableHitRate()
+    {
+        return lastTableHitRate;
+    }
+
+    /**
+     * @return long the positions it visited past the depth limit
+     */
+    public synchronized long getLastQuiescenceNodes()
+    {
+        return lastQuiescenceNodes;
+    }
+
+    /**
+     * @return double[] the time each of its passes took, in milliseconds, depth 1 first
+     */
+    public synchronized double[] getLastIterationMillis()
+    {
+        return lastIterationMillis.clone();
+    }
+
+    /**
+     * Start the totals again from nothing.
+     */
+    public synchronized void reset()
+    {
+        searches = 0;
+        totalNodes = 0;
+        totalLeaves = 0;
+        totalNanos = 0;
+        totalExpanded = 0;
+        totalCutoffs = 0;
+        totalProbes = 0;
+        totalHits = 0;
+    }
+
+    /**
+     * @return String a line giving the totals so far
+     */
+    @Override
+    public synchronized String toString()
+    {
+        return String.format("%d searches, %d nodes in %.1fms (%.0f a second), %.1f%% cut off, %.1f%% table hits",
+                searches, totalNodes, totalNanos/1e6, getNodesPerSecond(), 100*getCutoffRate(), 100*getTableHitRate());
+    }
+}
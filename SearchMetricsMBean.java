@@ -0,0 +1,101 @@
+
+/**
+ * The management interface of SearchMetrics: what a JMX client such as JConsole can see of the engine's
+ * searches. The "Last" attributes describe the most recent move; the others add up over every move since the
+ * game started (or since reset() was last called).
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public interface SearchMetricsMBean
+{
+    /**
+     * @return long the number of moves searched for
+     */
+    long getSearches();
+
+    /**
+     * @return long the positions visited in all of them
+     */
+    long getTotalNodes();
+
+    /**
+     * @return long the positions evaluated (at the depth limit or the end of a run of takes) in all of them
+     */
+    long getTotalLeaves();
+
+    /**
+     * @return double the time they took, in milliseconds
+     */
+    double getTotalMillis();
+
+    /**
+     * @return double the positions visited a second, over all of them
+     */
+    double getNodesPerSecond();
+
+    /**
+     * @return double the share of positions whose moves were searched that were cut off
+     */
+    double getCutoffRate();
+
+    /**
+     * @return double the share of table probes that found an entry
+     */
+    double getTableHitRate();
+
+    /**
+     * @return int the depth of the deepest pass the last search finished
+     */
+    int getLastDepth();
+
+    /**
+     * @return long the positions the last search visited
+     */
+    long getLastNodes();
+
+    /**
+     * @return long the positions it evaluated
+     */
+    long getLastLeaves();
+
+    /**
+     * @return double the time it took, in milliseconds
+     */
+    double getLastMillis();
+
+    /**
+     * @return double the positions it visited a second
+     */
+    double getLastNodesPerSecond();
+
+    /**
+     * @return double the share of its positions that were cut off
+     */
+    double getLastCutoffRate();
+
+    /**
+     * @return double its effective branching factor (see Search.branchingFactor())
+     */
+    double getLastBranchingFactor();
+
+    /**
+     * @return double the share of its table probes that found an entry
+     */
+    double getLastTableHitRate();
+
+    /**
+     * @return long the positions it visited past the depth limit
+     */
+    long getLastQuiescenceNodes();
+
+    /**
+     * @return double[] the time each of its passes took, in milliseconds, depth 1 first
+     */
+    double[] getLastIterationMillis();
+
+    /**
+     * Start the totals again from nothing.
+     */
+    void reset();
+}
@@ -13,6 +13,9 @@ public class Square extends JButton
     int xPos;
     int yPos;
 
+    static final String[] ICON_FILES = {null, "bPiece.png", "wPiece.png", "bPieceK.png", "wPieceK.png"}; //the image for each piece
+    static ImageIcon[] icons = new ImageIcon[5]; //the icon for each piece, once it has been loaded
+
     /**
      * Constructor for objects of class Square
      * @param int x the row on the board this square appears in
@@ -34,24 +37,30 @@ public class Square extends JButton
      */
     public void addPiece(int[][] current)
     {
-        ImageIcon blackPiece = new ImageIcon("bPiece.png"); //image of a black piece
-        ImageIcon whitePiece = new ImageIcon("wPiece.png"); //image of a white piece
-        ImageIcon blackKing = new ImageIcon("bPieceK.png"); //image of a black king
-        ImageIcon whiteKing = new ImageIcon("wPieceK.png"); //image of a white king
-        if (current[xPos][yPos]==1) { //if a black is here in the current game state
-            super.setIcon(blackPiece);
-        }
-        else if (current[xPos][yPos]==2) { //if a white piece is here
-            super.setIcon(whitePiece);
-        }
-        else if (current[xPos][yPos]==3) { //if a black king is here
-            super.setIcon(blackKing); 
-        }
-        else if (current[xPos][yPos]==4) { //if a white king is here
-            super.setIcon(whiteKing);
-        }
-        else { //if this square is unoccupied
-            super.setIcon(null);
-        }
+        addPiece(current[xPos][yPos]);
+    }
+
+    /**
+     * Show a given piece on the square, or none.
+     * @param int piece 0 if the square is empty, 1 black, 2 white, 3 black king, 4 white king
+     */
+    public void addPiece(int piece)
+    {
+        super.setIcon(icon(piece));
+    }
+
+    /**
+     * Get the icon for a piece, loading it from its file the first time it is asked for. The icons are shared
+     * by every square (and every board), so each file is read once however often the board is redrawn.
+     * @param int piece 1 black, 2 white, 3 black king, 4 white king, or 0 for none
+     * @return ImageIcon the icon, or null for an empty square
+     */
+    static ImageIcon icon(int piece)
+    {
+        if (piece==0) {
+            return null; }
+        if (icons[piece]==null) {
+            icons[piece] = new ImageIcon(ICON_FILES[piece]); }
+        return icons[piece];
     }
 }
@@ -0,0 +1,557 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+/**
+ * Endgame tables: the exact result of every position with only a few pieces left, worked out in advance. With
+ * so few pieces the material count says little (two kings against one is a win, but the search can shuffle its
+ * kings for ever without finding it), so once the search reaches a position in the tables it takes the result
+ * from them instead, and when the game itself reaches one, Engine plays straight from them.
+ *
+ * The tables are built once, offline (java TableBase build pieces [directory]), by working backwards from the
+ * end: first every position where the player to move can win at once, then every position where all of their
+ * moves lose at once, then wins in three, and so on, each pass finding the positions one move further from the
+ * end, until a pass finds nothing new. Whatever is left is a draw. The rules are those of the search: a player
+ * with no pieces has lost, and a player with no moves has drawn.
+ *
+ * There is one file for each balance of material, such as "2-1-0-2.tb" for two black men and a king against
+ * two white kings, holding one byte for each arrangement of those pieces with black to move: 0 for a draw, and
+ * otherwise the number of moves (by both players) to the end of the game with best play, which is odd if the
+ * player to move wins and even if they lose. Positions with white to move are looked up as the same position
+ * turned round, with the colours swapped, so they need no files of their own. An arrangement is numbered by
+ * ranking the squares of each kind of piece as a combination (see index()): the black men among the 28 squares
+ * they can stand on, then the white men, then the black kings among the squares the men leave free, then the
+ * white kings. The only numbers wasted are those that put two men on one square.
+ *
+ * The files are mapped into memory rather than read, so the tables take no room on the heap and are shared by
+ * every Engine in the JVM (and with the operating system's file cache), and they are loaded in full when they
+ * are opened, so that a search is never held up waiting for the disk. Looking a position up is then a few
+ * table lookups and one byte read.
+ *
+ * The game looks for the tables in the directory "tablebase", or the one named by -Ddraughts.tablebase, and
+ * plays without them if there are none. Up to four pieces takes a few minutes to build (and 5MB of disk);
+ * each piece more takes many times as long.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class TableBase
+{
+    static final int MAX_PIECES = 8; //the most pieces the numbering allows for
+    static final int INVALID = 255; //the value at a number that isn't a position (two men on one square)
+    static final int LONGEST = 254; //the most moves to the end that a byte can hold
+    static final int NEAREST = 10; //the most moves to the end that score() tells apart, keeping wins above any material count here
+    static final String DIRECTORY = System.getProperty("draughts.tablebase", "tablebase"); //where the game looks for the tables
+    static final int[][] CHOOSE = new int[33][MAX_PIECES + 1]; //CHOOSE[n][k] is the number of ways of choosing k of n squares
+
+    static {
+        for (int n = 0; n <= 32; n++) {
+            CHOOSE[n][0] = 1;
+            for (int k = 1; k <= MAX_PIECES && k <= n; k++) {
+                CHOOSE[n][k] = CHOOSE[n - 1][k - 1] + (k < n ? CHOOSE[n - 1][k] : 0); }
+        }
+    }
+
+    private static TableBase shared; //the tables the game uses, opened the first time they're asked for
+    private static boolean looked; //whether they have been looked for
+
+    int pieces; //the most pieces of any table open
+    ByteBuffer[] tables; //the table for each balance of material, by slice(), or null if there isn't one
+    int longest; //the most moves to the end of any position in the open tables
+
+    /**
+     * Constructor for objects of class TableBase, with no tables open.
+     */
+    public TableBase()
+    {
+        tables = new ByteBuffer[slice(MAX_PIECES, MAX_PIECES, MAX_PIECES, MAX_PIECES) + 1];
+    }
+
+    /**
+     * Open every table in a directory.
+     * @param File dir the directory
+     */
+    public TableBase(File dir) throws IOException
+    {
+        this();
+        File[] files = dir.listFiles();
+        if (files==null) {
+            throw new IOException("not a directory: " + dir); }
+        for (File file : files) {
+            String[] counts = file.getName().replace(".tb", "").split("-");
+            if (file.getName().endsWith(".tb") && counts.length==4) {
+                open(file, Integer.parseInt(counts[0]), Integer.parseInt(counts[1]), Integer.parseInt(counts[2]),
+                     Integer.parseInt(counts[3]));
+            }
+        }
+    }
+
+    /**
+     * Get the tables the game uses, opening them the first time.
+     * @return TableBase the tables in DIRECTORY, or null if there are none
+     */
+    public static synchronized TableBase get()
+    {
+        if (!looked) {
+            looked = true;
+            File dir = new File(DIRECTORY);
+            if (dir.isDirectory()) {
+                try {
+                    TableBase found = new TableBase(dir);
+                    if (found.pieces > 0) {
+                        shared = found; }
+                }
+                catch (IOException e) {
+                    System.err.println("couldn't open the endgame tables in " + dir + ": " + e.getMessage());
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Map one table into memory and load it.
+     * @param File file the table's file
+     * @param int bm the number of black men
+     * @param int bk the number of black kings
+     * @param int wm the number of white men
+     * @param int wk the number of white kings
+     */
+    private void open(File file, int bm, int bk, int wm, int wk) throws IOException
+    {
+        long size = size(bm, bk, wm, wk);
+        if (file.length()!=size) {
+            throw new IOException(file + " should be " + size + " bytes long"); }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, 0, size); //stays mapped after the channel is closed
+            table.load(); //read it all in now, rather than a page at a time in the middle of a search
+            tables[slice(bm, bk, wm, wk)] = table;
+            for (int i = 0; i < size; i++) {
+                int value = table.get(i) & 0xFF;
+                if (value!=INVALID) {
+                    longest = Math.max(longest, value); }
+            }
+        }
+        pieces = Math.max(pieces, bm + bk + wm + wk);
+    }
+
+    /**
+     * @param int bm the number of black men
+     * @param int bk the number of black kings
+     * @param int wm the number of white men
+     * @param int wk the number of white kings
+     * @return int the number of the table for that balance of material
+     */
+    static int slice(int bm, int bk, int wm, int wk)
+    {
+        return ((bm*(MAX_PIECES + 1) + bk)*(MAX_PIECES + 1) + wm)*(MAX_PIECES + 1) + wk;
+    }
+
+    /**
+     * @param int bm the number of black men
+     * @param int bk the number of black kings
+     * @param int wm the number of white men
+     * @param int wk the number of white kings
+     * @return long the number of positions numbered in the table for that balance of material
+     */
+    static long size(int bm, int bk, int wm, int wk)
+    {
+        int men = bm + wm;
+        return (long) CHOOSE[28][bm]*CHOOSE[28][wm]*CHOOSE[32 - men][bk]*CHOOSE[32 - men - bk][wk];
+    }
+
+    /**
+     * Number a position with black to move, within the table for its balance of material. Black men can stand
+     * on squares 0 to 27 (on 28 to 31 they would have been crowned), and white men on 4 to 31.
+     * @param int black the mask of black pieces
+     * @param int white the mask of white pieces
+     * @param int kings the mask of kings
+     * @return int the position's number
+     */
+    static int index(int black, int white, int kings)
+    {
+        int blackMen = black & ~kings;
+        int whiteMen = white & ~kings;
+        int blackKings = black & kings;
+        int men = blackMen | whiteMen;
+        int free = 32 - Integer.bitCount(men);
+        int bk = Integer.bitCount(blackKings);
+        long index = rank(blackMen);
+        index = index*CHOOSE[28][Integer.bitCount(whiteMen)] + rank(whiteMen >>> 4);
+        index = index*CHOOSE[free][bk] + rank(squeeze(blackKings, men));
+        index = index*CHOOSE[free - bk][Integer.bitCount(white & kings)] + rank(squeeze(white & kings, men | blackKings));
+        return (int) index;
+    }
+
+    /**
+     * The rank of a set of squares among all sets of the same size, in the order of their highest squares
+     * (then their next highest, and so on).
+     * @param int mask the set
+     * @return int its rank
+     */
+    static int rank(int mask)
+    {
+        int rank = 0;
+        for (int i = 1; mask!=0; i++) {
+            rank += CHOOSE[Integer.numberOfTrailingZeros(mask)][i];
+            mask &= mask - 1;
+        }
+        return rank;
+    }
+
+    /**
+     * The set of squares with a given rank, the reverse of rank().
+     * @param int rank the rank
+     * @param int k the number of squares in the set
+     * @return int the set
+     */
+    static int unrank(int rank, int k)
+    {
+        int mask = 0;
+        for (int i = k; i >= 1; i--) {
+            int s = i - 1;
+            while (CHOOSE[s + 1][i] <= rank) { //the highest square left is the last with no more sets below it than the rank
+                s++; }
+            rank -= CHOOSE[s][i];
+            mask |= 1 << s;
+        }
+        return mask;
+    }
+
+    /**
+     * Renumber some squares as if the squares taken weren't there, closing up the gaps.
+     * @param int mask the squares to renumber (none of them taken)
+     * @param int taken the squares to leave out
+     * @return int the squares renumbered
+     */
+    static int squeeze(int mask, int taken)
+    {
+        int out = 0;
+        for (; mask!=0; mask &= mask - 1) {
+            int s = Integer.numberOfTrailingZeros(mask);
+            out |= 1 << (s - Integer.bitCount(taken & ((1 << s) - 1)));
+        }
+        return out;
+    }
+
+    /**
+     * The reverse of squeeze(): number some squares among all of them again.
+     * @param int mask the squares, numbered without the squares taken
+     * @param int taken the squares that were left out
+     * @return int the squares numbered as usual
+     */
+    static int spread(int mask, int taken)
+    {
+        int out = 0;
+        int i = 0;
+        for (int s = 0; s < 32; s++) {
+            if ((taken >>> s & 1)==0) {
+                if ((mask >>> i & 1)!=0) {
+                    out |= 1 << s; }
+                i++;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Look up a position with black to move.
+     * @param int black the mask of black pieces
+     * @param int white the mask of white pieces
+     * @param int kings the mask of kings
+     * @return int its value (see the class comment), or -1 if there is no table for its material
+     */
+    int value(int black, int white, int kings)
+    {
+        ByteBuffer table = tables[slice(Integer.bitCount(black & ~kings), Integer.bitCount(black & kings),
+                                        Integer.bitCount(white & ~kings), Integer.bitCount(white & kings))];
+        if (table==null) {
+            return -1; }
+        return table.get(index(black, white, kings)) & 0xFF;
+    }
+
+    /**
+     * Look up a position.
+     * @param Position pos the position
+     * @param int player the player to move
+     * @return int its value for the player to move (0 for a draw, otherwise the moves to the end, odd if
+     * they win and even if they lose), or -1 if it isn't in the tables
+     */
+    public int probe(Position pos, int player)
+    {
+        if (Integer.bitCount(pos.black | pos.white) > pieces || pos.black==0 || pos.white==0) {
+            return -1; }
+        int black = pos.black;
+        int white = pos.white;
+        int kings = pos.kings;
+        if (player==2) { //turn the board round and swap the colours, so that it is black to move
+            black = Integer.reverse(pos.white);
+            white = Integer.reverse(pos.black);
+            kings = Integer.reverse(pos.kings);
+        }
+        if ((black & ~kings & 0xF0000000)!=0 || (white & ~kings & 0xF)!=0) { //a man that should have been crowned
+            return -1; }
+        return value(black, white, kings);
+    }
+
+    /**
+     * The score the search gives a position in the tables. A win is 24 less the number of moves to the end, so
+     * that the search plays for the quickest win and the slowest loss, as bestMove() does; beyond NEAREST moves
+     * they all score the same, which keeps every win above the material count of any position in the tables.
+     * @param int value a value from probe()
+     * @param int player the player to move
+     * @return int the score: from 24 - NEAREST to 23 if black wins, the same below zero if white wins, 0 for a draw
+     */
+    static int score(int value, int player)
+    {
+        if (value==0) {
+            return 0; }
+        boolean moverWins = (value & 1)==1;
+        int score = 24 - Math.min(value, NEAREST);
+        return moverWins==(player==1) ? score : -score;
+    }
+
+    /**
+     * Choose the best move in a position from the tables: the quickest win if there is one, otherwise a draw
+     * if there is one, otherwise the slowest loss.
+     * @param Position pos the position (this is not changed)
+     * @param int player the player to move
+     * @return int the move, or -1 if the position isn't in the tables or no move is possible
+     */
+    public int bestMove(Position pos, int player)
+    {
+        if (probe(pos, player) < 0) {
+            return -1; }
+        int[] moves = new int[Search.MAX_MOVES];
+        int count = MoveGenerator.generateMoves(pos, player, moves);
+        int best = -1;
+        int bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            Position next = pos.copy();
+            next.makeMove(moves[i]);
+            int value = (next.black==0 || next.white==0) ? 0 : probe(next, 3 - player); //the opponent has no pieces left: they lost with no moves to go
+            if (value < 0) {
+                return -1; }
+            int rank;
+            if (next.black==0 || next.white==0 || (value!=0 && (value & 1)==0)) { //the opponent loses
+                rank = 1000 - value; }
+            else if (value==0) {
+                rank = 0; }
+            else { //the opponent wins
+                rank = -1000 + value; }
+            if (rank > bestRank) {
+                bestRank = rank;
+                best = moves[i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Build the tables for every balance of material with up to a given number of pieces, writing them to a
+     * directory. The tables a position's moves can lead to are built first: those with fewer pieces, and among
+     * those with the same number, those with fewer men (a crowning turns a man into a king). A table and the
+     * one for the same material with the colours swapped lead to each other, so they are solved together.
+     * @param int maxPieces the most pieces
+     * @param File dir the directory to write to
+     */
+    public void build(int maxPieces, File dir) throws IOException
+    {
+        if (maxPieces > MAX_PIECES) {
+            throw new IllegalArgumentException("at most " + MAX_PIECES + " pieces"); }
+        dir.mkdirs();
+        for (int n = 2; n <= maxPieces; n++) {
+            for (int men = 0; men <= n; men++) {
+                ArrayList<int[]> group = new ArrayList<>();
+                for (int bm = 0; bm <= men; bm++) {
+                    int wm = men - bm;
+                    for (int bk = 0; bk <= n - men; bk++) {
+                        int wk = n - men - bk;
+                        File file = new File(dir, bm + "-" + bk + "-" + wm + "-" + wk + ".tb");
+                        if (bm + bk > 0 && wm + wk > 0 && !file.exists()) {
+                            group.add(new int[]{bm, bk, wm, wk}); }
+                        else if (file.exists() && tables[slice(bm, bk, wm, wk)]==null) { //built by an earlier run
+                            open(file, bm, bk, wm, wk); }
+                    }
+                }
+                if (!group.isEmpty()) {
+                    solve(group, dir); }
+            }
+        }
+    }
+
+    /**
+     * Solve a group of tables that lead to each other, one pass for each number of moves to the end, and
+     * write them out.
+     * @param ArrayList<int[]> group the material of each table (black men, black kings, white men, white kings)
+     * @param File dir the directory to write to
+     */
+    private void solve(ArrayList<int[]> group, File dir) throws IOException
+    {
+        long start = System.nanoTime();
+        byte[][] values = new byte[group.size()][];
+        long positions = 0;
+        for (int g = 0; g < group.size(); g++) {
+            int[] c = group.get(g);
+            long size = size(c[0], c[1], c[2], c[3]);
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("too many positions for one table: " + size); }
+            values[g] = new byte[(int) size];
+            for (int i = 0; i < size; i++) {
+                int[] masks = decode(c, i);
+                if (masks==null) {
+                    values[g][i] = (byte) INVALID; }
+                else {
+                    positions++; }
+            }
+            tables[slice(c[0], c[1], c[2], c[3])] = ByteBuffer.wrap(values[g]); //so that the group's tables can be looked up as they are built
+        }
+
+        int[] moves = new int[Search.MAX_MOVES];
+        int lowerLongest = longest;
+        int pass = 1;
+        for (; ; pass++) {
+            if (pass > LONGEST) {
+                throw new IllegalStateException("a position is more than " + LONGEST + " moves from the end"); }
+            boolean found = false;
+            for (int g = 0; g < group.size(); g++) {
+                byte[] v = values[g];
+                for (int i = 0; i < v.length; i++) {
+                    if (v[i]!=0) { //already solved (or not a position)
+                        continue; }
+                    int[] masks = decode(group.get(g), i);
+                    Position pos = new Position(masks[0], masks[1], masks[2]);
+                    int count = MoveGenerator.generateMoves(pos, 1, moves);
+                    boolean wins = false;
+                    boolean allLose = count > 0; //with no moves it is a draw
+                    int slowest = 0; //the most moves to the end of any of the losing moves
+                    for (int j = 0; j < count && !wins; j++) {
+                        int capturedKings = pos.makeMove(moves[j]);
+                        int after; //the value of the position after the move, for white, or -1 if it isn't known yet
+                        if (pos.white==0) { //white has lost
+                            after = 0;
+                        }
+                        else {
+                            after = value(Integer.reverse(pos.white), Integer.reverse(pos.black), Integer.reverse(pos.kings));
+                            if (after==0 || after >= pass) { //a draw, or not solved before this pass
+                                after = -1; }
+                        }
+                        pos.unmakeMove(moves[j], capturedKings);
+                        if (after>=0 && (after & 1)==0) { //white loses, so black wins
+                            if (after + 1==pass) {
+                                wins = true; }
+                            allLose = false;
+                        }
+                        else if (after < 0) {
+                            allLose = false; }
+                        else {
+                            slowest = Math.max(slowest, after); }
+                    }
+                    if (wins || (allLose && slowest + 1==pass)) {
+                        v[i] = (byte) pass;
+                        found = true;
+                    }
+                }
+            }
+            if (!found && pass > lowerLongest + 1) { //nothing left that a later pass could reach
+                break; }
+        }
+
+        long wins = 0;
+        long losses = 0;
+        for (int g = 0; g < group.size(); g++) {
+            int[] c = group.get(g);
+            for (byte b : values[g]) {
+                int value = b & 0xFF;
+                if (value!=INVALID && value!=0) {
+                    longest = Math.max(longest, value);
+                    if ((value & 1)==1) {
+                        wins++; }
+                    else {
+                        losses++; }
+                }
+            }
+            File file = new File(dir, c[0] + "-" + c[1] + "-" + c[2] + "-" + c[3] + ".tb");
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer out = ByteBuffer.wrap(values[g]);
+                while (out.hasRemaining()) {
+                    channel.write(out); }
+            }
+            open(file, c[0], c[1], c[2], c[3]); //look it up from the file from now on, rather than the heap
+        }
+        StringBuilder names = new StringBuilder();
+        for (int[] c : group) {
+            names.append(' ').append(c[0]).append('-').append(c[1]).append('-').append(c[2]).append('-').append(c[3]); }
+        System.out.printf("%s: %d positions, %d wins, %d losses, %d draws, longest %d moves, %d passes, %.1fs%n",
+                names.substring(1), positions, wins, losses, positions - wins - losses, longest, pass,
+                (System.nanoTime() - start)/1e9);
+    }
+
+    /**
+     * The position with a given number in a table, the reverse of index().
+     * @param int[] c the table's material (black men, black kings, white men, white kings)
+     * @param int index the number
+     * @return int[] the masks of black pieces, white pieces and kings, or null if the number isn't a position
+     */
+    static int[] decode(int[] c, int index)
+    {
+        int men = c[0] + c[2];
+        int whiteKingSets = CHOOSE[32 - men - c[1]][c[3]];
+        int blackKingSets = CHOOSE[32 - men][c[1]];
+        int whiteMenSets = CHOOSE[28][c[2]];
+        int whiteKings = index % whiteKingSets;
+        index /= whiteKingSets;
+        int blackKings = index % blackKingSets;
+        index /= blackKingSets;
+        int whiteMen = unrank(index % whiteMenSets, c[2]) << 4;
+        int blackMen = unrank(index/whiteMenSets, c[0]);
+        if ((blackMen & whiteMen)!=0) {
+            return null; }
+        int menMask = blackMen | whiteMen;
+        blackKings = spread(unrank(blackKings, c[1]), menMask);
+        whiteKings = spread(unrank(whiteKings, c[3]), menMask | blackKings);
+        return new int[]{blackMen | blackKings, whiteMen | whiteKings, blackKings | whiteKings};
+    }
+
+    /**
+     * Build the tables (java TableBase build pieces [directory]), or look a position up in them
+     * (java TableBase probe squares [-white] [directory]).
+     * @param String[] args see above
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length >= 2 && args[0].equals("build")) {
+            File dir = new File(args.length > 2 ? args[2] : DIRECTORY);
+            long start = System.nanoTime();
+            new TableBase().build(Integer.parseInt(args[1]), dir);
+            System.out.printf("built in %.1fs%n", (System.nanoTime() - start)/1e9);
+        }
+        else if (args.length >= 2 && args[0].equals("probe")) {
+            Position pos = Position.fromString(args[1]);
+            int player = 1;
+            File dir = new File(DIRECTORY);
+            for (int i = 2; i < args.length; i++) {
+                if (args[i].equals("-white")) {
+                    player = 2; }
+                else {
+                    dir = new File(args[i]); }
+            }
+            TableBase tables = new TableBase(dir);
+            int value = tables.probe(pos, player);
+            int move = tables.bestMove(pos, player);
+            if (value < 0) {
+                System.out.println("not in the tables"); }
+            else if (value==0) {
+                System.out.println("draw" + (move>=0 ? ", " + Move.describe(move) : "")); }
+            else {
+                System.out.println(((value & 1)==1 ? "wins" : "loses") + " in " + value + " moves"
+                                   + (move>=0 ? ", " + Move.describe(move) : "")); }
+        }
+        else {
+            System.out.println("usage: java TableBase build pieces [directory] | probe squares [-white] [directory]"); }
+    }
+}
@@ -0,0 +1,403 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+/**
+ * Plays games between two engine settings, with no window, to measure how much stronger one is than the other
+ * and what it costs. Each setting is a difficulty level (as in setLimit()) or a depth, with an optional time
+ * budget for each move and an optional node budget: "3" is level 3, "d8" a search to depth 8, "4:500" level 4
+ * with half a second a move (without one, a setting keeps Engine's two seconds), and "4:0:100000" level 4 with
+ * 100000 positions a move and no time limit, which plays the same however busy the machine is. Any setting can
+ * end with a number of threads for each engine: "4:500@4" searches with four threads sharing a table (LazySmp),
+ * "4:500@4s" shares out the root moves between them instead (ParallelSearch), and "d10@4r" uses LazySmp's
+ * reproducible mode.
+ *
+ * Games start from a set of random openings: a few random moves from the start position, so that the games
+ * aren't all the same. Each opening is played twice, with the settings swapping colours, so that neither gains
+ * from the openings that happen to favour one colour. The games are shared out between threads, one per core
+ * by default, each with its own pair of engines. A game ends when a player has no pieces (a win), no moves
+ * (a draw, as in the search), or when a position comes up for the third time or there has been no progress for
+ * forty moves each (draws, see History).
+ *
+ * Each game's result is written out as soon as it finishes, as a line of CSV, or of JSON if the output file
+ * ends in .json: the colours, the result, the moves, and for each side the CPU time and positions searched,
+ * along with the Elo difference estimated so far (with its 95% error) and the SPRT log-likelihood ratio. The
+ * sequential probability ratio test stops the match as soon as the results are enough to decide between the
+ * settings being equal in strength (elo0, 0 by default) and the first being stronger by elo1 (10 by default),
+ * with 5% chances of each kind of mistake, so a clear difference takes far fewer games than a fixed number.
+ * The summary at the end gives the CPU time each setting took a move, so the strength gained can be weighed
+ * against the time it costs.
+ *
+ * Usage: java Tournament first second [-games n] [-threads n] [-plies n] [-seed n] [-sprt elo0 elo1] [-out file]
+ * where -plies is the number of random moves in each opening (default 4), and the results go to standard
+ * output if no file is given (with the progress lines on standard error).
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class Tournament
+{
+    static final int MAX_PLIES = 1000; //a game still going after this many moves is a draw (in case the draw rules never end it)
+    static final int TABLE_BITS = 18; //the size of each engine's table: 256K entries (2MB)
+    static final double ALPHA = 0.05; //the chance of the SPRT accepting elo1 when elo0 is true
+    static final double BETA = 0.05; //the chance of it accepting elo0 when elo1 is true
+
+    String[] settings; //the two settings, first and second
+    int games; //the most games to play
+    int threads; //the number of games to play at once
+    ArrayList<Position> openings; //the positions the games start from
+    ArrayList<Integer> openingPlayers; //the player to move in each
+    double elo0; //the Elo difference if the settings are equal, for the SPRT
+    double elo1; //the Elo difference if the first is stronger
+    PrintWriter out; //where the results go
+    boolean json; //whether to write JSON rather than CSV
+
+    int played; //the games finished so far
+    int wins; //the first setting's wins
+    int draws;
+    int losses; //the first setting's losses
+    long[] cpuNanos; //the CPU time each setting has taken, first and second
+    long[] moves; //the moves each has made
+    long[] nodes; //the positions each has searched
+    volatile boolean decided; //set once the SPRT has decided, so that no more games are started
+    String verdict; //what the SPRT decided, or null
+
+    /**
+     * Constructor for objects of class Tournament
+     * @param String first the first setting
+     * @param String second the second setting
+     * @param int games the most games to play (rounded up to an even number, as each opening is played twice)
+     * @param int plies the number of random moves in each opening
+     * @param long seed the seed for the random openings
+     */
+    public Tournament(String first, String second, int games, int plies, long seed)
+    {
+        settings = new String[]{first, second};
+        this.games = games + games % 2;
+        threads = Runtime.getRuntime().availableProcessors();
+        elo0 = 0;
+        elo1 = 10;
+        out = new PrintWriter(System.out, true);
+        cpuNanos = new long[2];
+        moves = new long[2];
+        nodes = new long[2];
+        newEngine(first); //check both settings before starting
+        newEngine(second);
+
+        openings = new ArrayList<>();
+        openingPlayers = new ArrayList<>();
+        Random rand = new Random(seed);
+        int[] m = new int[Search.MAX_MOVES];
+        while (openings.size() < this.games/2) {
+            Position pos = Position.getStartPosition();
+            int player = 1;
+            for (int ply = 0; ply < plies; ply++) {
+                int count = MoveGenerator.generateMoves(pos, player, m);
+                if (count==0) {
+                    break; }
+                pos.makeMove(m[rand.nextInt(count)]);
+                player = 3 - player;
+            }
+            if (!pos.blackWins() && !pos.whiteWins() && MoveGenerator.hasMoves(pos, player)) { //a game still to be played
+                openings.add(pos);
+                openingPlayers.add(player);
+            }
+        }
+    }
+
+    /**
+     * Make an engine with a setting.
+     * @param String setting the setting (see the class comment)
+     * @return Engine the engine
+     */
+    static Engine newEngine(String setting)
+    {
+        Engine engine = new Engine(TABLE_BITS);
+        String[] parts = setting.split("@")[0].split(":");
+        try {
+            if (parts[0].startsWith("d")) {
+                engine.setDepth(Integer.parseInt(parts[0].substring(1))); }
+            else {
+                engine.setLimit(Integer.parseInt(parts[0])); }
+            if (parts.length > 1) {
+                engine.setTimeBudget(Long.parseLong(parts[1])); }
+            if (parts.length > 2) {
+                engine.setNodeBudget(Long.parseLong(parts[2])); }
+            int at = setting.indexOf('@');
+            if (at>=0) { //a number of threads, perhaps followed by s (split the root) or r (reproducible)
+                String threads = setting.substring(at + 1);
+                char mode = threads.isEmpty() ? ' ' : threads.charAt(threads.length() - 1);
+                if (mode=='s' || mode=='r') {
+                    threads = threads.substring(0, threads.length() - 1); }
+                engine.setReproducible(mode=='r');
+                engine.setThreads(Integer.parseInt(threads), mode=='s');
+            }
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("not a setting: " + setting);
+        }
+        return engine;
+    }
+
+    /**
+     * Play the games, until all have been played or the SPRT decides.
+     */
+    public void run() throws InterruptedException
+    {
+        if (json) {
+            out.println("["); }
+        else {
+            out.println("game,opening,black,white,result,moves,black_cpu_ms,white_cpu_ms,black_nodes,white_nodes,elo,elo_error,llr"); }
+        ThreadLocal<Engine[]> engines = ThreadLocal.withInitial(() -> new Engine[]{newEngine(settings[0]), newEngine(settings[1])});
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < games; i++) {
+            int game = i;
+            pool.execute(() -> {
+                if (!decided) {
+                    play(game, engines.get()); }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        if (json) {
+            out.println("]"); }
+        out.flush();
+    }
+
+    /**
+     * Play one game and record its result.
+     * @param int game the game's number: opening game/2, with the first setting black in the even games
+     * @param Engine[] engines an engine for each setting, first and second
+     */
+    private void play(int game, Engine[] engines)
+    {
+        ThreadMXBean threadTimes = ManagementFactory.getThreadMXBean();
+        int firstPlays = game % 2==0 ? 1 : 2; //the player the first setting plays as
+        Position pos = openings.get(game/2).copy();
+        int player = openingPlayers.get(game/2);
+        History history = new History();
+        history.push(pos, player);
+        long[] cpu = new long[2]; //by player, black then white
+        long[] searched = new long[2];
+        int plies = 0;
+        int result; //1 if black won, 2 if white won, 0 for a draw
+        while (true) {
+            if (pos.blackWins()) {
+                result = 1;
+                break;
+            }
+            if (pos.whiteWins()) {
+                result = 2;
+                break;
+            }
+            if (history.isDraw() || plies>=MAX_PLIES) {
+                result = 0;
+                break;
+            }
+            Engine engine = engines[player==firstPlays ? 0 : 1];
+            long before = threadTimes.getCurrentThreadCpuTime();
+            EngineMove move = engine.chooseMove(pos, player, history);
+            cpu[player - 1] += threadTimes.getCurrentThreadCpuTime() - before;
+            if (move==null) { //no moves: a draw
+                result = 0;
+                break;
+            }
+            searched[player - 1] += move.nodes;
+            pos = move.position;
+            player = 3 - player;
+            history.push(pos, player);
+            plies++;
+        }
+        record(game, firstPlays, result, plies, cpu, searched);
+    }
+
+    /**
+     * Add a game's result to the totals, write it out, and see whether the SPRT has decided.
+     * @param int game the game's number
+     * @param int firstPlays the player the first setting played as
+     * @param int result 1 if black won, 2 if white won, 0 for a draw
+     * @param int plies the moves played
+     * @param long[] cpu the CPU time each player took, in nanoseconds, black then white
+     * @param long[] searched the positions each player searched
+     */
+    private synchronized void record(int game, int firstPlays, int result, int plies, long[] cpu, long[] searched)
+    {
+        if (decided) { //finished after the match was decided, so it doesn't count
+            return; }
+        played++;
+        if (result==0) {
+            draws++; }
+        else if (result==firstPlays) {
+            wins++; }
+        else {
+            losses++; }
+        int first = firstPlays - 1;
+        int second = 2 - firstPlays;
+        cpuNanos[0] += cpu[first];
+        cpuNanos[1] += cpu[second];
+        moves[0] += (plies + (firstPlays==openingPlayers.get(game/2) ? 1 : 0))/2; //the player to move first made the odd move
+        moves[1] += (plies + (firstPlays==openingPlayers.get(game/2) ? 0 : 1))/2;
+        nodes[0] += searched[first];
+        nodes[1] += searched[second];
+
+        String black = settings[firstPlays==1 ? 0 : 1];
+        String white = settings[firstPlays==1 ? 1 : 0];
+        String score = result==1 ? "1-0" : result==2 ? "0-1" : "1/2-1/2";
+        double llr = llr();
+        if (json) {
+            out.printf("%s{\"game\":%d,\"opening\":%d,\"black\":\"%s\",\"white\":\"%s\",\"result\":\"%s\",\"moves\":%d,"
+                    + "\"black_cpu_ms\":%.1f,\"white_cpu_ms\":%.1f,\"black_nodes\":%d,\"white_nodes\":%d,"
+                    + "\"elo\":%.1f,\"elo_error\":%.1f,\"llr\":%.3f}%n", played > 1 ? "," : "", game, game/2,
+                    black, white, score, plies, cpu[0]/1e6, cpu[1]/1e6, searched[0], searched[1], elo(), eloError(), llr);
+        }
+        else {
+            out.printf("%d,%d,%s,%s,%s,%d,%.1f,%.1f,%d,%d,%.1f,%.1f,%.3f%n", game, game/2, black, white, score, plies,
+                    cpu[0]/1e6, cpu[1]/1e6, searched[0], searched[1], elo(), eloError(), llr);
+        }
+
+        if (llr>=Math.log((1 - BETA)/ALPHA)) {
+            verdict = "H1 accepted: " + settings[0] + " is stronger"; }
+        else if (llr<=Math.log(BETA/(1 - ALPHA))) {
+            verdict = "H0 accepted: " + settings[0] + " is no stronger"; }
+        if (verdict!=null) {
+            decided = true; }
+        if (played % 10==0 && !decided && played < games) { //main() prints the last one
+            System.err.println(summary()); }
+    }
+
+    /**
+     * @return double the first setting's share of the points so far (a draw is half a point)
+     */
+    double score()
+    {
+        return played==0 ? 0.5 : (wins + 0.5*draws)/played;
+    }
+
+    /**
+     * The Elo difference that would give an expected score.
+     * @param double score the expected score
+     * @return double the difference, capped at +-1000 for a score of 1 or 0
+     */
+    static double eloOf(double score)
+    {
+        if (score<=0) {
+            return -1000; }
+        if (score>=1) {
+            return 1000; }
+        return Math.max(-1000, Math.min(1000, -400*Math.log10(1/score - 1)));
+    }
+
+    /**
+     * @return double the estimated Elo difference, first setting minus second
+     */
+    double elo()
+    {
+        return eloOf(score());
+    }
+
+    /**
+     * @return double the variance of one game's score, from the results so far
+     */
+    double variance()
+    {
+        if (played==0) {
+            return 0; }
+        double s = score();
+        return (wins*(1 - s)*(1 - s) + draws*(0.5 - s)*(0.5 - s) + losses*s*s)/played;
+    }
+
+    /**
+     * @return double half the width of the 95% interval around elo()
+     */
+    double eloError()
+    {
+        if (played < 2) {
+            return 1000; }
+        double error = 1.96*Math.sqrt(variance()/played);
+        return (eloOf(score() + error) - eloOf(score() - error))/2;
+    }
+
+    /**
+     * The log-likelihood ratio of the results so far, for the SPRT between elo0 and elo1, in the usual
+     * approximation that treats the mean score as normally distributed.
+     * @return double the ratio (0 until there is some variance to go on)
+     */
+    double llr()
+    {
+        double variance = variance();
+        if (variance==0) {
+            return 0; }
+        double s0 = 1/(1 + Math.pow(10, -elo0/400));
+        double s1 = 1/(1 + Math.pow(10, -elo1/400));
+        return played*(s1 - s0)*(2*score() - s0 - s1)/(2*variance);
+    }
+
+    /**
+     * @return String a line giving the results so far, the Elo estimate, the SPRT and the cost of each setting
+     */
+    public synchronized String summary()
+    {
+        return String.format("%d games: +%d =%d -%d, elo %+.1f +- %.1f, llr %.2f (%.2f to %.2f)%s; "
+                + "%s %.1fms CPU and %d positions a move, %s %.1fms and %d",
+                played, wins, draws, losses, elo(), eloError(), llr(), Math.log(BETA/(1 - ALPHA)),
+                Math.log((1 - BETA)/ALPHA), verdict==null ? "" : ", " + verdict,
+                settings[0], moves[0]==0 ? 0.0 : cpuNanos[0]/1e6/moves[0], moves[0]==0 ? 0 : nodes[0]/moves[0],
+                settings[1], moves[1]==0 ? 0.0 : cpuNanos[1]/1e6/moves[1], moves[1]==0 ? 0 : nodes[1]/moves[1]);
+    }
+
+    /**
+     * Run a match from the command line.
+     * @param String[] args see the class comment
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        if (args.length < 2) {
+            System.out.println("usage: java Tournament first second [-games n] [-threads n] [-plies n] [-seed n] "
+                               + "[-sprt elo0 elo1] [-out file.csv|file.json]");
+            return;
+        }
+        int games = 1000;
+        int plies = 4;
+        long seed = 1;
+        int threads = 0;
+        double elo0 = 0;
+        double elo1 = 10;
+        String file = null;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("-games")) {
+                games = Integer.parseInt(args[++i]); }
+            else if (args[i].equals("-threads")) {
+                threads = Integer.parseInt(args[++i]); }
+            else if (args[i].equals("-plies")) {
+                plies = Integer.parseInt(args[++i]); }
+            else if (args[i].equals("-seed")) {
+                seed = Long.parseLong(args[++i]); }
+            else if (args[i].equals("-sprt")) {
+                elo0 = Double.parseDouble(args[++i]);
+                elo1 = Double.parseDouble(args[++i]);
+            }
+            else if (args[i].equals("-out")) {
+                file = args[++i]; }
+            else {
+                throw new IllegalArgumentException("unknown option: " + args[i]); }
+        }
+        Tournament tournament = new Tournament(args[0], args[1], games, plies, seed);
+        if (threads > 0) {
+            tournament.threads = threads; }
+        tournament.elo0 = elo0;
+        tournament.elo1 = elo1;
+        if (file!=null) {
+            tournament.out = new PrintWriter(new FileWriter(file));
+            tournament.json = file.endsWith(".json");
+        }
+        tournament.run();
+        tournament.out.close();
+        System.err.println(tournament.summary());
+    }
+}
@@ -0,0 +1,150 @@
+
+/**
+ * A fixed-size table of search results, indexed by position key, so that a position reached again through a
+ * different order of moves doesn't have to be searched again. Each entry holds the position's full key, so that
+ * a different position landing on the same slot can be spotted, along with the depth it was searched to, the
+ * score found, whether that score is exact or only a bound, and the best move found.
+ *
+ * The entry (apart from the key) is packed into one long: the best move plus one (so that 0 means no move) in
+ * bits 0-29, the bound type in bits 30-31, the depth in bits 32-39 and the score in bits 40-47.
+ *
+ * The table can be shared between threads without locking (see LazySmp). Rather than the key itself, each slot
+ * holds the key XORed with the entry, so a slot that one thread read while another was half way through writing
+ * it simply fails to match, and is treated as a miss. The counts are not synchronised, so with several threads
+ * they are close rather than exact.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class TranspositionTable
+{
+    static final int EXACT = 1; //the score is the true minimax value to the depth searched
+    static final int LOWER = 2; //the search was cut off, and the true value is at least the score
+    static final int UPPER = 3; //no move reached alpha, and the true value is at most the score
+
+    long[] keys; //the key of the position stored in each slot, XORed with its entry (0 if the slot is empty)
+    long[] entries; //the packed entry for each slot
+    int mask; //the number of slots minus one, for turning a key into a slot
+
+    long probes; //the number of times the table has been looked in
+    long hits; //the number of times the position looked for was found
+    long collisions; //the number of times a different position was found in the slot looked in
+    long stores; //the number of entries written
+
+    /**
+     * Constructor for objects of class TranspositionTable
+     * @param int bits the size of the table, as a power of two: 20 gives just over a million entries (16MB)
+     */
+    public TranspositionTable(int bits)
+    {
+        keys = new long[1 << bits];
+        entries = new long[1 << bits];
+        mask = (1 << bits) - 1;
+    }
+
+    /**
+     * Look up a position.
+     * @param long key the key of the position
+     * @return long the packed entry, or 0 if the position isn't in the table
+     */
+    public long probe(long key)
+    {
+        int slot = (int) key & mask;
+        probes++;
+        long entry = entries[slot];
+        long check = keys[slot];
+        if ((check ^ entry)==key) {
+            hits++;
+            return entry;
+        }
+        if (check!=0) {
+            collisions++; }
+        return 0;
+    }
+
+    /**
+     * Record the result of searching a position, replacing whatever was in its slot unless that was the
+     * same position searched deeper.
+     * @param long key the key of the position
+     * @param int depth how many moves ahead it was searched
+     * @param int bound EXACT, LOWER or UPPER
+     * @param int score the score found
+     * @param int move the best move found (see the Move class), or -1
+     */
+    public void store(long key, int depth, int bound, int score, int move)
+    {
+        int slot = (int) key & mask;
+        long old = entries[slot];
+        if ((keys[slot] ^ old)==key && depth(old) > depth) { //keep the deeper result for the same position
+            return;
+        }
+        long entry = (move + 1) | ((long) bound << 30) | ((long) depth << 32) | ((long) (score & 0xFF) << 40);
+        keys[slot] = key ^ entry;
+        entries[slot] = entry;
+        stores++;
+    }
+
+    /**
+     * Empty the table and reset the counts.
+     */
+    public void clear()
+    {
+        java.util.Arrays.fill(keys, 0);
+        java.util.Arrays.fill(entries, 0);
+        probes = 0;
+        hits = 0;
+        collisions = 0;
+        stores = 0;
+    }
+
+    /**
+     * @param long entry a packed entry
+     * @return int the best move stored, or -1 if there isn't one
+     */
+    public static int move(long entry)
+    {
+        return ((int) entry & 0x3FFFFFFF) - 1;
+    }
+
+    /**
+     * @param long entry a packed entry
+     * @return int EXACT, LOWER or UPPER
+     */
+    public static int bound(long entry)
+    {
+        return (int) (entry >>> 30) & 3;
+    }
+
+    /**
+     * @param long entry a packed entry
+     * @return int how many moves ahead the position was searched
+     */
+    public static int depth(long entry)
+    {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    /**
+     * @param long entry a packed entry
+     * @return int the score stored
+     */
+    public static int score(long entry)
+    {
+        return (byte) (entry >>> 40);
+    }
+
+    /**
+     * @return String a line giving how often the table was used and how full it is, to help choose its size
+     */
+    public String report()
+    {
+        int used = 0;
+        for (long k : keys) {
+            if (k!=0) {
+                used++; }
+        }
+        return String.format("table: %d slots, %.1f%% full, %d probes, %d hits (%.1f%%), %d collisions, %d stores",
+                keys.length, 100.0*used/keys.length, probes, hits, probes==0 ? 0.0 : 100.0*hits/probes,
+                collisions, stores);
+    }
+}
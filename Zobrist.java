@@ -0,0 +1,57 @@
+import java.util.Random;
+/**
+ * The random numbers behind the 64-bit keys that identify positions. A position's key is the XOR of one number
+ * for each piece on the board (one per kind of piece per square), so when a move is made the key can be
+ * updated by XORing in and out just the squares that changed, rather than worked out from scratch. The numbers
+ * come from a fixed seed, so keys are the same every time the game is run.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class Zobrist
+{
+    //PIECES[p-1][s] is the number for piece p (1 black, 2 white, 3 black king, 4 white king) on square s
+    static final long[][] PIECES = new long[4][32];
+    static final long WHITE_TO_MOVE; //XORed in when it is the user's turn, so the same board with a different player to move has a different key
+
+    static {
+        Random rand = new Random(20160601L);
+        for (int p = 0; p < 4; p++) {
+            for (int s = 0; s < 32; s++) {
+                PIECES[p][s] = rand.nextLong();
+            }
+        }
+        WHITE_TO_MOVE = rand.nextLong();
+    }
+
+    /**
+     * Work out the key of a position from scratch.
+     * @param Position pos the position in question
+     * @return long its key
+     */
+    public static long hash(Position pos)
+    {
+        long key = 0;
+        int occupied = pos.black | pos.white;
+        while (occupied!=0) {
+            int s = Integer.numberOfTrailingZeros(occupied);
+            key ^= PIECES[pos.pieceAt(s) - 1][s];
+            occupied &= occupied - 1;
+        }
+        return key;
+    }
+
+    /**
+     * The key to use for a position with a given player to move.
+     * @param Position pos the position in question
+     * @param int player the player to move
+     * @return long the key
+     */
+    public static long key(Position pos, int player)
+    {
+        if (player==1) {
+            return pos.key; }
+        else {
+            return pos.key ^ WHITE_TO_MOVE; }
+    }
+}
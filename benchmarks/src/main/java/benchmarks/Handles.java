@@ -0,0 +1,147 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+
+/**
+ * Handles on the game's classes. The game is written in the default package (as BlueJ likes), which code in a
+ * named package can't refer to by name, and JMH won't generate benchmarks in the default package. So the
+ * benchmarks reach the game through method handles, looked up once by class name. Each handle is adapted to take
+ * and return Object in place of the game's own classes; as they are static final the JIT treats them as
+ * constants and inlines straight through them, so they cost no more than a direct call.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+final class Handles
+{
+    static final Class<?> RULES = find("Rules");
+    static final Class<?> ENGINE = find("Engine");
+    static final Class<?> POSITION = find("Position");
+    static final Class<?> MOVE_GENERATOR = find("MoveGenerator");
+    static final Class<?> SEARCH = find("Search");
+    static final Class<?> TABLE = find("TranspositionTable");
+
+    //the original rules, in Rules, and the original search, in Engine
+    static final MethodHandle GET_POSSIBLE_STATES = statik(RULES, "getPossibleStates", ArrayList.class, int[][].class, int.class);
+    static final MethodHandle EVALUATE_STATE = statik(RULES, "evaluateState", int.class, int[][].class);
+    static final MethodHandle CLONE_STATE = statik(RULES, "cloneState", int[][].class, int[][].class);
+    static final MethodHandle NEW_ENGINE = constructor(ENGINE);
+    static final MethodHandle MINIMAX = virtual(ENGINE, "minimax", int.class, POSITION, int.class, int.class, int.class, int.class);
+    static final MethodHandle SET_LIMIT = virtual(ENGINE, "setLimit", void.class, int.class);
+    static final MethodHandle PUT_LIMIT = setter(ENGINE, "limit");
+
+    //positions and the move generator built on them
+    static final MethodHandle FROM_STRING = statik(POSITION, "fromString", POSITION, String.class);
+    static final MethodHandle TO_ARRAY = virtual(POSITION, "toArray", int[][].class);
+    static final MethodHandle COPY = virtual(POSITION, "copy", POSITION);
+    static final MethodHandle EVALUATE = virtual(POSITION, "evaluate", int.class);
+    static final MethodHandle GENERATE_MOVES = statik(MOVE_GENERATOR, "generateMoves", int.class, POSITION, int.class, int[].class);
+    static final MethodHandle GET_POSSIBLE_POSITIONS = statik(MOVE_GENERATOR, "getPossiblePositions", ArrayList.class, POSITION, int.class);
+
+    //the search
+    static final MethodHandle NEW_TABLE = constructor(TABLE, int.class);
+    static final MethodHandle CLEAR_TABLE = virtual(TABLE, "clear", void.class);
+    static final MethodHandle NEW_SEARCH = constructor(SEARCH, TABLE);
+    static final MethodHandle SEARCH_TO = virtual(SEARCH, "search", int.class, POSITION, int.class, int.class);
+    static final MethodHandle PUT_PVS = setter(SEARCH, "pvs");
+    static final int MAX_MOVES = constant(SEARCH, "MAX_MOVES");
+
+    private Handles()
+    {
+    }
+
+    private static Class<?> find(String name)
+    {
+        try {
+            return Class.forName(name);
+        }
+        catch (ClassNotFoundException e) {
+            throw new IllegalStateException("the game's classes are not on the class path", e);
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> owner, Class<?>... params)
+    {
+        try {
+            return erase(MethodHandles.publicLookup().findConstructor(owner, MethodType.methodType(void.class, params)));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle virtual(Class<?> owner, String name, Class<?> result, Class<?>... params)
+    {
+        try {
+            return erase(MethodHandles.publicLookup().findVirtual(owner, name, MethodType.methodType(result, params)));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle statik(Class<?> owner, String name, Class<?> result, Class<?>... params)
+    {
+        try {
+            return erase(MethodHandles.publicLookup().findStatic(owner, name, MethodType.methodType(result, params)));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A field of a game class, most of which are package-private: plain reflection may open those up (the game is
+     * in the unnamed module), and a handle made from the opened field skips the access check.
+     */
+    private static java.lang.reflect.Field field(Class<?> owner, String name) throws ReflectiveOperationException
+    {
+        java.lang.reflect.Field field = owner.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+
+    private static MethodHandle setter(Class<?> owner, String name)
+    {
+        try {
+            return erase(MethodHandles.lookup().unreflectSetter(field(owner, name)));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int constant(Class<?> owner, String name)
+    {
+        try {
+            return field(owner, name).getInt(null);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Replace the game's classes in a handle's type with Object, so that it can be called with invokeExact from
+     * here.
+     */
+    private static MethodHandle erase(MethodHandle handle)
+    {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (isGameClass(type.parameterType(i))) {
+                type = type.changeParameterType(i, Object.class); }
+        }
+        if (isGameClass(type.returnType())) {
+            type = type.changeReturnType(Object.class); }
+        return handle.asType(type);
+    }
+
+    private static boolean isGameClass(Class<?> c)
+    {
+        return c==RULES || c==ENGINE || c==POSITION || c==MOVE_GENERATOR || c==SEARCH || c==TABLE;
+    }
+}
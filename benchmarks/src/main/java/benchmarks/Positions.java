@@ -0,0 +1,41 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The fixed positions the benchmarks run over, written as by Position.toString() (one character per dark
+ * square, from the computer's side of the board: '.' empty, 'b'/'w' men, 'B'/'W' kings). Every benchmark that
+ * uses this state is run once for each of them. Black (the computer) is to move in all of them.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+@State(Scope.Thread)
+public class Positions
+{
+    static final String OPENING = "bbbbbbbbbbbb........wwwwwwwwwwww"; //the start of the game
+    static final String MIDDLEGAME = "b.bb.b.b.bb...w.wwb....w.w.ww..w"; //24 moves in, 8 men a side, no takes
+    static final String KING_ENDGAME = "..W........wW...........B..B..B."; //three black kings against two kings and a man
+    static final String CAPTURE_CHAIN = "....b.bb..bbb.b..w.wbw..ww.w...."; //black's only move takes three, crowning on the way
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String position;
+
+    Object pos; //the position, as a Position
+    int[][] state; //the position, as the original 2D array
+
+    @Setup
+    public void setup() throws Throwable
+    {
+        pos = parse(position.equals("opening") ? OPENING : position.equals("middlegame") ? MIDDLEGAME : KING_ENDGAME);
+        state = (int[][]) Handles.TO_ARRAY.invokeExact(pos);
+    }
+
+    static Object parse(String text) throws Throwable
+    {
+        return (Object) Handles.FROM_STRING.invokeExact(text);
+    }
+}
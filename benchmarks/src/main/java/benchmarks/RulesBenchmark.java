@@ -0,0 +1,106 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The rules, one call at a time: finding the moves, copying a position and evaluating it. Each is measured both
+ * in the original 2D array version in Rules (which the game was first written with) and in the bitboard version
+ * the game now runs on, so changes to either can be compared with the other and with themselves over time.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RulesBenchmark
+{
+    Object chain; //the capture chain position
+    int[][] chainState; //the same, as a 2D array
+    int[] moves; //the buffer for generateMoves()
+
+    @Setup
+    public void setup() throws Throwable
+    {
+        chain = Positions.parse(Positions.CAPTURE_CHAIN);
+        chainState = (int[][]) Handles.TO_ARRAY.invokeExact(chain);
+        moves = new int[Handles.MAX_MOVES];
+    }
+
+    @Benchmark
+    public ArrayList<?> getPossibleStates(Positions p) throws Throwable
+    {
+        return (ArrayList<?>) Handles.GET_POSSIBLE_STATES.invokeExact(p.state, 1);
+    }
+
+    @Benchmark
+    public ArrayList<?> getPossiblePositions(Positions p) throws Throwable
+    {
+        return (ArrayList<?>) Handles.GET_POSSIBLE_POSITIONS.invokeExact(p.pos, 1);
+    }
+
+    @Benchmark
+    public int generateMoves(Positions p) throws Throwable
+    {
+        return (int) Handles.GENERATE_MOVES.invokeExact(p.pos, 1, moves);
+    }
+
+    @Benchmark
+    public int evaluateState(Positions p) throws Throwable
+    {
+        return (int) Handles.EVALUATE_STATE.invokeExact(p.state);
+    }
+
+    @Benchmark
+    public int evaluate(Positions p) throws Throwable
+    {
+        return (int) Handles.EVALUATE.invokeExact(p.pos);
+    }
+
+    @Benchmark
+    public int[][] cloneState(Positions p) throws Throwable
+    {
+        return (int[][]) Handles.CLONE_STATE.invokeExact(p.state);
+    }
+
+    @Benchmark
+    public Object copy(Positions p) throws Throwable
+    {
+        return (Object) Handles.COPY.invokeExact(p.pos);
+    }
+
+    /**
+     * The recursion that follows a chain of takes, through getJumpStatesState() and getJumpStatesPosition().
+     */
+    @Benchmark
+    public ArrayList<?> captureChainStates() throws Throwable
+    {
+        return (ArrayList<?>) Handles.GET_POSSIBLE_STATES.invokeExact(chainState, 1);
+    }
+
+    @Benchmark
+    public ArrayList<?> captureChainPositions() throws Throwable
+    {
+        return (ArrayList<?>) Handles.GET_POSSIBLE_POSITIONS.invokeExact(chain, 1);
+    }
+
+    @Benchmark
+    public int captureChainMoves() throws Throwable
+    {
+        return (int) Handles.GENERATE_MOVES.invokeExact(chain, 1, moves);
+    }
+}
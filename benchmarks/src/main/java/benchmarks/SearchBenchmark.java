@@ -0,0 +1,87 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A whole search for the computer's move at each difficulty level: the original minimax (in Engine), which
+ * builds a new position for every move, and Search, which makes and takes back moves on one position with a
+ * table and move ordering, with and without its null window searches (pvs). Levels 1 to 3 use the depths
+ * setLimit() gives them. The top level has no fixed depth in the game (it deepens until its time is up), so
+ * here it is searched to TOP_LEVEL_DEPTH instead.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark
+{
+    static final int TOP_LEVEL_DEPTH = 8; //the depth to search the top level to
+
+    @Param({"1", "2", "3", "4"})
+    public int level;
+
+    Object engine; //an Engine, for the original minimax
+    Object search; //a Search, with its own table
+    Object plain; //a Search with pvs off, so plain alpha-beta, sharing that table
+    Object table; //that table
+    int depth; //the depth the level searches to
+
+    @Setup
+    public void setup() throws Throwable
+    {
+        engine = (Object) Handles.NEW_ENGINE.invokeExact();
+        Handles.SET_LIMIT.invokeExact(engine, level);
+        if (level>=4) {
+            Handles.PUT_LIMIT.invokeExact(engine, TOP_LEVEL_DEPTH); }
+        depth = level>=4 ? TOP_LEVEL_DEPTH : level==3 ? 5 : level;
+        table = (Object) Handles.NEW_TABLE.invokeExact(16);
+        search = (Object) Handles.NEW_SEARCH.invokeExact(table);
+        plain = (Object) Handles.NEW_SEARCH.invokeExact(table);
+        Handles.PUT_PVS.invokeExact(plain, false);
+    }
+
+    /**
+     * Start each search with an empty table, as the first move of a game would, rather than finding the answer
+     * already stored by the last call. (Per-call setup is only a small part of even the shallowest search here.)
+     */
+    @Setup(Level.Invocation)
+    public void clearTable() throws Throwable
+    {
+        Handles.CLEAR_TABLE.invokeExact(table);
+    }
+
+    @Benchmark
+    public int minimax(Positions p) throws Throwable
+    {
+        return (int) Handles.MINIMAX.invokeExact(engine, p.pos, 0, 1, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public int search(Positions p) throws Throwable
+    {
+        return (int) Handles.SEARCH_TO.invokeExact(search, p.pos, 1, depth);
+    }
+
+    @Benchmark
+    public int searchAlphaBeta(Positions p) throws Throwable
+    {
+        return (int) Handles.SEARCH_TO.invokeExact(plain, p.pos, 1, depth);
+    }
+}
@@ -0,0 +1,165 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+/**
+ * Checks the draws History finds: a position coming up for the third time, and moves going nowhere for too
+ * long, along with the moves that make progress and so start the count again.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class HistoryTest
+{
+    /**
+     * A position with a piece on each of the squares given, and nothing else.
+     * @param String pieces the pieces, as Position.toString() writes them, and their squares, e.g. "B0 W31"
+     * @return Position the position
+     */
+    static Position position(String pieces)
+    {
+        char[] squares = "................................".toCharArray();
+        for (String piece : pieces.split(" ")) {
+            squares[Integer.parseInt(piece.substring(1))] = piece.charAt(0); }
+        return Position.fromString(new String(squares));
+    }
+
+    /**
+     * Push the moves of two kings going back and forth: black 0-5, white 31-27, black 5-0, white 27-31, as
+     * many times round as asked, starting from black to move with the kings on 0 and 31.
+     * @param History history the history to push them onto
+     * @param int times how many times to go round
+     */
+    static void goRound(History history, int times)
+    {
+        for (int i = 0; i < times; i++) {
+            history.push(position("B5 W31"), 2);
+            history.push(position("B5 W27"), 1);
+            history.push(position("B0 W27"), 2);
+            history.push(position("B0 W31"), 1);
+        }
+    }
+
+    /**
+     * Going round the circle once is a repetition for the search, twice is a draw for the game.
+     */
+    @Test
+    public void thirdTimeIsADraw()
+    {
+        History history = new History();
+        history.push(position("B0 W31"), 1);
+        assertEquals(1, history.occurrences());
+        assertFalse(history.repeated());
+
+        goRound(history, 1);
+        assertEquals(2, history.occurrences());
+        assertTrue(history.repeated());
+        assertFalse(history.isDraw());
+
+        goRound(history, 1);
+        assertEquals(3, history.occurrences());
+        assertTrue(history.isDraw());
+    }
+
+    /**
+     * The same board with the other player to move is a different position, so it doesn't count.
+     */
+    @Test
+    public void otherPlayerToMoveIsNotARepeat()
+    {
+        History history = new History();
+        history.push(position("B0 W31"), 1);
+        history.push(position("B5 W31"), 2);
+        history.push(position("B0 W31"), 2);
+        assertEquals(1, history.occurrences());
+    }
+
+    /**
+     * A man moving can't be taken back, so the positions before it can't come up again.
+     */
+    @Test
+    public void manMovingStartsAgain()
+    {
+        History history = new History();
+        history.push(position("B0 b8 W31"), 1);
+        for (int i = 0; i < 2; i++) {
+            history.push(position("B5 b8 W31"), 2);
+            history.push(position("B5 b8 W27"), 1);
+            history.push(position("B0 b8 W27"), 2);
+            history.push(position("B0 b8 W31"), 1);
+        }
+        assertEquals(3, history.occurrences());
+        history.push(position("B0 b12 W31"), 2); //the man moves on
+        assertEquals(1, history.occurrences());
+        assertFalse(history.repeated());
+        assertFalse(history.isDraw());
+    }
+
+    /**
+     * NO_PROGRESS moves in a row by kings alone, taking nothing, are a draw; a piece being taken starts the
+     * count again.
+     */
+    @Test
+    public void noProgressIsADraw()
+    {
+        History history = new History();
+        history.push(position("B0 W31 w20"), 1);
+        for (int i = 1; i < History.NO_PROGRESS; i++) {
+            history.push(position("B" + (i % 2==1 ? 5 : 0) + " W31 w20"), i % 2==1 ? 2 : 1); }
+        assertFalse(history.noProgress());
+        history.push(position("B0 W31 w20"), 1);
+        assertTrue(history.noProgress());
+        assertTrue(history.isDraw());
+
+        history.pop();
+        history.push(position("B0 W31"), 1); //the man is taken instead
+        assertFalse(history.noProgress());
+        assertFalse(history.isDraw());
+    }
+
+    /**
+     * Taking positions off again, as the search does, puts the counts back as they were.
+     */
+    @Test
+    public void truncateUndoesPushes()
+    {
+        History history = new History();
+        history.push(position("B0 W31"), 1);
+        goRound(history, 1);
+        int size = history.size;
+        goRound(history, 1);
+        assertTrue(history.isDraw());
+        history.truncate(size);
+        assertEquals(2, history.occurrences());
+        assertFalse(history.isDraw());
+    }
+
+    /**
+     * Two games that reach the same position agree on what follows if the moves since the last progress match,
+     * whatever came before.
+     */
+    @Test
+    public void sameRecentLooksBackToProgress()
+    {
+        History one = new History();
+        one.push(position("B0 b8 W31"), 1);
+        one.push(position("B0 b12 W31"), 2);
+        History two = new History();
+        two.push(position("B5 b8 W31"), 2);
+        two.push(position("B0 b8 W31"), 1);
+        two.push(position("B0 b12 W31"), 2);
+        assertTrue(one.sameRecent(two));
+
+        one.push(position("B0 b12 W27"), 1);
+        one.push(position("B5 b12 W27"), 2);
+        two.push(position("B0 b12 W27"), 1);
+        two.push(position("B5 b12 W27"), 2);
+        assertTrue(one.sameRecent(two));
+
+        two.truncate(3);
+        two.push(position("B0 b12 W26"), 1);
+        two.push(position("B5 b12 W27"), 2);
+        assertFalse(one.sameRecent(two));
+    }
+}
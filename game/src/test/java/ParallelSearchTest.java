@@ -0,0 +1,73 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+/**
+ * Checks that splitting the root moves between threads, with the bound shared between them, picks the same move
+ * with the same score as a serial search to the same depth.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class ParallelSearchTest
+{
+    /**
+     * Search the start and some positions from random games both ways, at several depths.
+     */
+    @Test
+    public void sameMoveAsSerialSearch()
+    {
+        ArrayList<Position> positions = new ArrayList<>();
+        positions.add(Position.getStartPosition());
+        Random rand = new Random(2);
+        while (positions.size() < 8) {
+            Position pos = Position.getStartPosition();
+            int player = 1;
+            for (int ply = 0; ply < 6 + 4*positions.size(); ply++) {
+                ArrayList<Position> next = MoveGenerator.getPossiblePositions(pos, player);
+                if (next.isEmpty()) {
+                    break; }
+                pos = next.get(rand.nextInt(next.size()));
+                player = 3 - player;
+            }
+            if (!pos.blackWins() && !pos.whiteWins() && MoveGenerator.hasMoves(pos, 1)) {
+                positions.add(pos); }
+        }
+        ParallelSearch parallel = new ParallelSearch(3);
+        try {
+            for (Position pos : positions) {
+                for (int depth = 1; depth <= 6; depth++) {
+                    Search serial = new Search(new TranspositionTable(16));
+                    serial.strictDepth = true;
+                    int serialScore = serial.search(pos, 1, depth);
+                    int parallelScore = parallel.search(pos, 1, depth);
+                    assertEquals(serial.bestMove, parallel.bestMove, "depth " + depth + " from " + pos);
+                    assertEquals(serialScore, parallelScore, "depth " + depth + " from " + pos);
+                }
+            }
+        }
+        finally {
+            parallel.shutdown();
+        }
+    }
+
+    /**
+     * A search whose limits are cancelled before it starts finds no move.
+     */
+    @Test
+    public void cancelledSearchStopsAtOnce()
+    {
+        ParallelSearch parallel = new ParallelSearch(2);
+        try {
+            SearchLimits limits = new SearchLimits(Search.MAX_PLY - 1, 0, 0);
+            limits.cancel();
+            parallel.iterate(Position.getStartPosition(), 1, limits);
+            assertEquals(-1, parallel.bestMove);
+            assertEquals(0, parallel.depthReached);
+        }
+        finally {
+            parallel.shutdown();
+        }
+    }
+}
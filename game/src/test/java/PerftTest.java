@@ -0,0 +1,74 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+/**
+ * Regression checks for move generation: the number of positions reachable from the start in exactly N moves,
+ * against the known counts for English draughts, and the three ways of generating moves agreeing with each
+ * other (see Perft).
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class PerftTest
+{
+    //the known counts from the start position, black to move, for 1 to 8 moves
+    static final long[] START_COUNTS = {7, 49, 302, 1469, 7361, 36768, 179740, 845931};
+
+    /**
+     * The counts from the start, making and taking back moves on one position.
+     */
+    @Test
+    public void startPositionCounts()
+    {
+        Perft perft = new Perft(0);
+        for (int depth = 1; depth <= START_COUNTS.length; depth++) {
+            assertEquals(START_COUNTS[depth - 1], perft.perft(Position.getStartPosition(), 1, depth), "depth " + depth);
+        }
+    }
+
+    /**
+     * Keeping subtotals in a table mustn't change the counts.
+     */
+    @Test
+    public void cachedCountsMatch()
+    {
+        Perft perft = new Perft(16);
+        assertEquals(START_COUNTS[7], perft.perft(Position.getStartPosition(), 1, 8));
+        assertTrue(perft.cacheHits > 0);
+    }
+
+    /**
+     * The list and the original 2D array rules find the same moves as the fast generator, root move by root
+     * move, from the start and from positions with kings on the board.
+     */
+    @Test
+    public void backendsAgree()
+    {
+        ArrayList<Position> positions = new ArrayList<>();
+        positions.add(Position.getStartPosition());
+        Random rand = new Random(3);
+        while (positions.size() < 4) { //play random games until they have kings
+            Position pos = Position.getStartPosition();
+            int player = 1;
+            while (pos.kings==0 || player!=1) {
+                ArrayList<Position> next = MoveGenerator.getPossiblePositions(pos, player);
+                if (next.isEmpty()) {
+                    break; }
+                pos = next.get(rand.nextInt(next.size()));
+                player = 3 - player;
+            }
+            if (pos.kings!=0 && MoveGenerator.hasMoves(pos, 1)) {
+                positions.add(pos); }
+        }
+        Perft perft = new Perft(0);
+        for (Position pos : positions) {
+            long[] fast = perft.divide(pos, 1, 5, "fast");
+            assertEquals(Arrays.toString(fast), Arrays.toString(perft.divide(pos, 1, 5, "list")), "from " + pos);
+            assertEquals(Arrays.toString(fast), Arrays.toString(perft.divide(pos, 1, 5, "legacy")), "from " + pos);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+/**
+ * Checks that the key Position keeps up to date as moves are made and taken back is always the one Zobrist
+ * works out from scratch.
+ *
+ * @author Lewis Lloyd
+ * @version 1
+ */
+public class ZobristTest
+{
+    /**
+     * Play random games, checking the key after every move, then take every move back and check it again.
+     */
+    @Test
+    public void incrementalKeyMatchesFullKey()
+    {
+        Random rand = new Random(1);
+        int[][] moves = new int[Search.MAX_PLY][Search.MAX_MOVES];
+        int[] made = new int[Search.MAX_PLY];
+        int[] takenKings = new int[Search.MAX_PLY];
+        for (int game = 0; game < 200; game++) {
+            Position pos = Position.getStartPosition();
+            Position start = pos.copy();
+            int player = 1;
+            int ply = 0;
+            while (ply < Search.MAX_PLY - 1) {
+                int count = MoveGenerator.generateMoves(pos, player, moves[ply]);
+                if (count==0) {
+                    break; }
+                made[ply] = moves[ply][rand.nextInt(count)];
+                takenKings[ply] = pos.makeMove(made[ply]);
+                ply++;
+                player = 3 - player;
+                assertEquals(Zobrist.hash(pos), pos.key, "after " + Move.describe(made[ply - 1]) + " in game " + game);
+                assertEquals(pos.key, pos.copy().key);
+            }
+            while (ply > 0) {
+                ply--;
+                pos.unmakeMove(made[ply], takenKings[ply]);
+                assertEquals(Zobrist.hash(pos), pos.key, "after taking back " + Move.describe(made[ply]) + " in game " + game);
+            }
+            assertEquals(start, pos);
+            assertEquals(start.key, pos.key);
+        }
+    }
+
+    /**
+     * The same board with a different player to move must have a different key.
+     */
+    @Test
+    public void playerToMoveChangesKey()
+    {
+        Position pos = Position.getStartPosition();
+        assertEquals(pos.key, Zobrist.key(pos, 1));
+        assertNotEquals(Zobrist.key(pos, 1), Zobrist.key(pos, 2));
+    }
+}